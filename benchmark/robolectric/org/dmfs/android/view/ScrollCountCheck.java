@@ -0,0 +1,538 @@
+/*
+ * Copyright (C) 2014 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dmfs.android.view;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.PixelFormat;
+import android.graphics.drawable.Drawable;
+import android.support.v4.view.PagerAdapter;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+
+
+/**
+ * Counts the work of a {@link ViewPager} with an attached {@link DrawablePagerTitleStrip} per frame while scripted swipes and jumps scroll it, and fails if
+ * any count exceeds its budget. The swipes are driven by {@link ViewPager#fakeDragBy(float)} and settle by {@link ViewPager#computeScroll()}, each frame
+ * runs the pending measure and layout pass. A {@link CountingAdapter} counts the calls to <code>getDrawableTitle</code>, <code>instantiateItem</code> and
+ * <code>destroyItem</code>, the pager and the strip count their measure and layout passes.
+ * <p>
+ * The budgets follow from what a scroll has to do, not from what the code does right now:
+ * </p>
+ * <ul>
+ * <li>Each page the pager passes enters its offscreen window on one side and leaves it on the other, so a swipe instantiates and destroys at most one page
+ * per page. A jump replaces all pages of the window, i.e. at most <code>2 * getOffscreenPageLimit() + 1</code>.</li>
+ * <li>The pager lays out only in frames that add or remove pages, and then once. The strip positions its titles itself, so it's never measured or laid out
+ * while scrolling.</li>
+ * <li>The strip fetches each title at most once per script. With titles of the same width every page moves exactly one title into the strip, with
+ * titles of different widths it may also bind the slots that narrower titles make room for. A jump fetches at most one title per slot.</li>
+ * </ul>
+ * <p>
+ * A script also fails if the pager doesn't end up on the page it's supposed to.
+ * </p>
+ * <p>
+ * This needs Robolectric and JUnit, see the README.
+ * </p>
+ *
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE, qualifiers = "w360dp-h640dp-xxhdpi")
+public final class ScrollCountCheck
+{
+	private final static int PAGES = 1000;
+	private final static int START_PAGE = 500;
+
+	/**
+	 * The number of swipes of a script, each one moves the pager by one page.
+	 */
+	private final static int SWIPES = 10;
+
+	/**
+	 * A drag moves the pager by two thirds of a page in {@link #DRAG_FRAMES} frames before it's released.
+	 */
+	private final static int DRAG_FRAMES = 20;
+
+	/**
+	 * A fling moves the pager by a sixth of a page in {@link #FLING_FRAMES} frames before it's released.
+	 */
+	private final static int FLING_FRAMES = 3;
+
+	/**
+	 * The distance of a jump with {@link ViewPager#setCurrentItem(int)}.
+	 */
+	private final static int JUMP_PAGES = 50;
+
+	/**
+	 * The duration of a frame in milliseconds.
+	 */
+	private final static int FRAME_TIME = 16;
+
+	/**
+	 * The number of frames after which a settling pager is considered to be stuck.
+	 */
+	private final static int MAX_SETTLE_FRAMES = 300;
+
+	private CountingPager mPager;
+	private CountingStrip mStrip;
+	private CountingAdapter mAdapter;
+	private int mScrollState;
+	private int mPosition;
+	private int mPagesPassed;
+
+
+	/**
+	 * Run all scripts. They run in a single test, because Robolectric resets the clock between tests but not the pooled {@link android.view.VelocityTracker}s,
+	 * so the movements of an earlier test would count as recent ones.
+	 */
+	@Test
+	public void scroll()
+	{
+		boolean passed = true;
+		for (boolean variable : new boolean[] { false, true })
+		{
+			for (int direction : new int[] { 1, -1 })
+			{
+				passed &= swipe(variable, direction, DRAG_FRAMES, 2f / 3);
+				passed &= swipe(variable, direction, FLING_FRAMES, 1f / 6);
+				passed &= jump(variable, direction * JUMP_PAGES, false);
+				passed &= jump(variable, direction * JUMP_PAGES, true);
+			}
+		}
+		assertTrue("a count exceeds its budget", passed);
+	}
+
+
+	/**
+	 * Swipe {@link #SWIPES} times to the next page in the given direction. Each swipe drags the pager by the given fraction of a page in the given number of
+	 * frames, releases it and lets it settle.
+	 */
+	private boolean swipe(boolean variable, int direction, int frames, float distance)
+	{
+		setUp(variable);
+		final Counts counts = new Counts();
+		final float step = -direction * distance * mPager.getWidth() / frames;
+		for (int swipe = 0; swipe < SWIPES; ++swipe)
+		{
+			// touch down in one frame and move in the following ones
+			counts.beginFrame();
+			mPager.beginFakeDrag();
+			counts.endFrame();
+			for (int frame = 0; frame < frames; ++frame)
+			{
+				counts.beginFrame();
+				mPager.fakeDragBy(step);
+				counts.endFrame();
+			}
+			counts.beginFrame();
+			mPager.endFakeDrag();
+			counts.endFrame();
+			settle(counts);
+		}
+		return counts.check(frames == DRAG_FRAMES ? "drag" : "fling", direction, variable, SWIPES, SWIPES, SWIPES, variable ? SWIPES + mStrip.mSlotCount
+			: SWIPES);
+	}
+
+
+	/**
+	 * Jump the given number of pages, with or without a smooth scroll.
+	 */
+	private boolean jump(boolean variable, int pages, boolean smooth)
+	{
+		setUp(variable);
+		final Counts counts = new Counts();
+		counts.beginFrame();
+		mPager.setCurrentItem(mPager.getCurrentItem() + pages, smooth);
+		counts.endFrame();
+		settle(counts);
+
+		final int window = 2 * mPager.getOffscreenPageLimit() + 1;
+		final int slots = mStrip.mSlotCount;
+		// a smooth scroll moves the strip across all pages in between, otherwise the strip just binds its slots
+		final int distance = Math.abs(pages);
+		final int maxTitles = smooth ? variable ? distance + slots : distance : slots;
+		return counts.check(smooth ? "smooth" : "jump", pages, variable, distance, window, window, maxTitles);
+	}
+
+
+	/**
+	 * Run frames and advance the scroll animation until the pager is idle.
+	 */
+	private void settle(Counts counts)
+	{
+		for (int frame = 0; mScrollState != ViewPager.SCROLL_STATE_IDLE && frame < MAX_SETTLE_FRAMES; ++frame)
+		{
+			counts.beginFrame();
+			mPager.computeScroll();
+			counts.endFrame();
+		}
+	}
+
+
+	/**
+	 * Attach a new pager with a strip and an adapter to an activity, show the start page and wait until it has been laid out.
+	 */
+	private void setUp(boolean variable)
+	{
+		final Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+		mPager = new CountingPager(activity);
+		mStrip = new CountingStrip(activity);
+		final ViewPager.LayoutParams params = new ViewPager.LayoutParams();
+		params.height = ViewGroup.LayoutParams.WRAP_CONTENT;
+		params.gravity = Gravity.TOP;
+		mPager.addView(mStrip, params);
+		mAdapter = new CountingAdapter(variable);
+		mPager.setAdapter(mAdapter);
+		mPager.setCurrentItem(START_PAGE, false);
+		mPager.addOnPageChangeListener(new ViewPager.OnPageChangeListener()
+		{
+			@Override
+			public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels)
+			{
+				mPagesPassed += Math.abs(position - mPosition);
+				mPosition = position;
+			}
+
+
+			@Override
+			public void onPageSelected(int position)
+			{
+			}
+
+
+			@Override
+			public void onPageScrollStateChanged(int state)
+			{
+				mScrollState = state;
+			}
+		});
+		activity.setContentView(mPager);
+		runFrame();
+		mScrollState = ViewPager.SCROLL_STATE_IDLE;
+		mPosition = START_PAGE;
+		mPagesPassed = 0;
+	}
+
+
+	/**
+	 * Advance the clock by one frame and run everything that's due, including the measure and layout pass.
+	 */
+	private static void runFrame()
+	{
+		ShadowLooper.idleMainLooper(FRAME_TIME, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Records the counts of the frames of one script.
+	 */
+	private final class Counts
+	{
+		private int mFrames;
+		private int mPages;
+		private int mTitles;
+		private int mMaxTitlesPerFrame;
+		private int mInstantiated;
+		private int mDestroyed;
+		private int mPagerLayouts;
+		private int mMaxPagerLayoutsPerFrame;
+		private int mStripLayouts;
+
+		/**
+		 * The number of frames that laid out the pager without adding or removing a page.
+		 */
+		private int mNeedlessLayouts;
+
+		private int mTitlesBefore;
+		private int mInstantiatedBefore;
+		private int mDestroyedBefore;
+		private int mPagerMeasuresBefore;
+		private int mPagerLayoutsBefore;
+		private int mStripLayoutsBefore;
+		private int mPagesBefore;
+
+
+		Counts()
+		{
+			mAdapter.resetTitles();
+		}
+
+
+		/**
+		 * Take a snapshot of the counters, call this before the input of a frame.
+		 */
+		void beginFrame()
+		{
+			mTitlesBefore = mAdapter.mTitles;
+			mInstantiatedBefore = mAdapter.mInstantiated;
+			mDestroyedBefore = mAdapter.mDestroyed;
+			mPagerMeasuresBefore = mPager.mMeasures;
+			mPagerLayoutsBefore = mPager.mLayouts;
+			mStripLayoutsBefore = mStrip.mMeasures + mStrip.mLayouts;
+			mPagesBefore = mPagesPassed;
+		}
+
+
+		/**
+		 * Run the frame and record its work.
+		 */
+		void endFrame()
+		{
+			runFrame();
+			final int titles = mAdapter.mTitles - mTitlesBefore;
+			final int instantiated = mAdapter.mInstantiated - mInstantiatedBefore;
+			final int destroyed = mAdapter.mDestroyed - mDestroyedBefore;
+			// a measure and a layout pass count as one pass, but either of them counts if the other one has been skipped
+			final int pagerLayouts = Math.max(mPager.mMeasures - mPagerMeasuresBefore, mPager.mLayouts - mPagerLayoutsBefore);
+			final int stripLayouts = mStrip.mMeasures + mStrip.mLayouts - mStripLayoutsBefore;
+
+			++mFrames;
+			mPages += mPagesPassed - mPagesBefore;
+			mTitles += titles;
+			mMaxTitlesPerFrame = Math.max(mMaxTitlesPerFrame, titles);
+			mInstantiated += instantiated;
+			mDestroyed += destroyed;
+			mPagerLayouts += pagerLayouts;
+			mMaxPagerLayoutsPerFrame = Math.max(mMaxPagerLayoutsPerFrame, pagerLayouts);
+			mStripLayouts += stripLayouts;
+			if (pagerLayouts > 0 && instantiated == 0 && destroyed == 0)
+			{
+				++mNeedlessLayouts;
+			}
+		}
+
+
+		/**
+		 * Print the counts and return whether the pager has passed the given number of pages and the counts are within the given budgets.
+		 */
+		boolean check(String script, int distance, boolean variable, int pages, int maxInstantiated, int maxDestroyed, int maxTitles)
+		{
+			final boolean passed = mPages == pages && mInstantiated <= maxInstantiated && mDestroyed <= maxDestroyed && mTitles <= maxTitles && mAdapter.mRefetched == 0
+				&& mMaxPagerLayoutsPerFrame <= 1 && mNeedlessLayouts == 0 && mStripLayouts == 0;
+			System.out.println(String.format(Locale.US,
+				"%-6s %+4d %-8s frames=%-4d pages=%-3d getDrawableTitle=%-3d (max %d per frame, %d twice) instantiateItem=%-2d destroyItem=%-2d "
+					+ "pager layouts=%-2d (max %d per frame, %d without page changes) strip layouts=%d %s", script, distance, variable ? "variable"
+					: "uniform", mFrames, mPages, mTitles, mMaxTitlesPerFrame, mAdapter.mRefetched, mInstantiated, mDestroyed, mPagerLayouts,
+				mMaxPagerLayoutsPerFrame, mNeedlessLayouts, mStripLayouts, passed ? "ok" : "FAILED"));
+			return passed;
+		}
+	}
+
+	/**
+	 * A {@link ViewPager} that counts its measure and layout passes.
+	 */
+	private final static class CountingPager extends ViewPager
+	{
+		int mMeasures;
+		int mLayouts;
+
+
+		CountingPager(Context context)
+		{
+			super(context);
+		}
+
+
+		@Override
+		protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec)
+		{
+			++mMeasures;
+			super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+		}
+
+
+		@Override
+		protected void onLayout(boolean changed, int l, int t, int r, int b)
+		{
+			++mLayouts;
+			super.onLayout(changed, l, t, r, b);
+		}
+	}
+
+	/**
+	 * A {@link DrawablePagerTitleStrip} that counts its measure and layout passes.
+	 */
+	private final static class CountingStrip extends DrawablePagerTitleStrip
+	{
+		int mMeasures;
+		int mLayouts;
+
+
+		CountingStrip(Context context)
+		{
+			super(context);
+		}
+
+
+		@Override
+		protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec)
+		{
+			++mMeasures;
+			super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+		}
+
+
+		@Override
+		protected void onLayout(boolean changed, int l, int t, int r, int b)
+		{
+			++mLayouts;
+			super.onLayout(changed, l, t, r, b);
+		}
+	}
+
+	/**
+	 * An adapter with an empty view per page and titles with the widths of {@link StripBenchmark#titleWidth(int, boolean)}. It counts the pages it
+	 * instantiates and destroys and the titles it returns.
+	 */
+	private final static class CountingAdapter extends PagerAdapter implements IDrawableTitlePagerAdapter
+	{
+		private final boolean mVariable;
+		private final boolean[] mFetched = new boolean[PAGES];
+		int mTitles;
+		int mRefetched;
+		int mInstantiated;
+		int mDestroyed;
+
+
+		CountingAdapter(boolean variable)
+		{
+			mVariable = variable;
+		}
+
+
+		/**
+		 * Forget which titles have been returned so far.
+		 */
+		void resetTitles()
+		{
+			Arrays.fill(mFetched, false);
+			mRefetched = 0;
+		}
+
+
+		@Override
+		public int getCount()
+		{
+			return PAGES;
+		}
+
+
+		@Override
+		public Object instantiateItem(ViewGroup container, int position)
+		{
+			++mInstantiated;
+			final View view = new View(container.getContext());
+			container.addView(view);
+			return view;
+		}
+
+
+		@Override
+		public void destroyItem(ViewGroup container, int position, Object object)
+		{
+			++mDestroyed;
+			container.removeView((View) object);
+		}
+
+
+		@Override
+		public boolean isViewFromObject(View view, Object object)
+		{
+			return view == object;
+		}
+
+
+		@Override
+		public Drawable getDrawableTitle(int position)
+		{
+			++mTitles;
+			if (mFetched[position])
+			{
+				++mRefetched;
+			}
+			mFetched[position] = true;
+			return new Title(StripBenchmark.titleWidth(position, mVariable));
+		}
+	}
+
+	/**
+	 * A title that draws nothing.
+	 */
+	private final static class Title extends Drawable
+	{
+		private final int mWidth;
+
+
+		Title(int width)
+		{
+			mWidth = width;
+		}
+
+
+		@Override
+		public int getIntrinsicWidth()
+		{
+			return mWidth;
+		}
+
+
+		@Override
+		public int getIntrinsicHeight()
+		{
+			return FakeSlotCallback.TITLE_HEIGHT;
+		}
+
+
+		@Override
+		public void draw(Canvas canvas)
+		{
+		}
+
+
+		@Override
+		public void setAlpha(int alpha)
+		{
+		}
+
+
+		@Override
+		public void setColorFilter(ColorFilter cf)
+		{
+		}
+
+
+		@Override
+		public int getOpacity()
+		{
+			return PixelFormat.TRANSLUCENT;
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2014 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dmfs.android.view;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+
+
+/**
+ * A minimal harness for micro benchmarks on a plain JVM. Each benchmark is warmed up first, then it's run in a couple of rounds of about 100 ms each. The
+ * median time per operation and the bytes allocated per operation are printed to {@link System#out}.
+ * <p>
+ * The allocation counter is HotSpot specific, other JVMs print <code>n/a</code> instead.
+ * </p>
+ *
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+abstract class Bench
+{
+	private final static long WARMUP_NANOS = 1000L * 1000L * 1000L;
+	private final static long ROUND_NANOS = 100L * 1000L * 1000L;
+	private final static int ROUNDS = 10;
+
+	/**
+	 * Receives the results of all operations, so the JIT can't drop the work.
+	 */
+	static volatile long sSink;
+
+	/**
+	 * The bean that counts the allocated bytes. {@link ManagementFactory#getThreadMXBean()} allocates on every call, so it's only called once.
+	 */
+	private final static ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+	private final String mName;
+
+
+	Bench(String name)
+	{
+		mName = name;
+	}
+
+
+	/**
+	 * Run the operation under test <code>ops</code> times.
+	 *
+	 * @param ops
+	 *            The number of operations to run.
+	 * @return Any value that depends on the results of the operations.
+	 */
+	abstract long run(int ops);
+
+
+	/**
+	 * Warm up and measure this benchmark and print the result.
+	 *
+	 * @return The number of bytes allocated per operation or -1 if the JVM can't tell.
+	 */
+	final double measure()
+	{
+		// find the number of operations that takes about one round
+		int ops = 1;
+		long elapsed;
+		while ((elapsed = time(ops)) < ROUND_NANOS / 10 && ops < Integer.MAX_VALUE / 2)
+		{
+			ops *= 2;
+		}
+		ops = (int) Math.max(1, Math.min(Integer.MAX_VALUE / 2, ops * ROUND_NANOS / Math.max(1, elapsed)));
+
+		final long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+		while (System.nanoTime() < warmupEnd)
+		{
+			time(ops);
+		}
+
+		final double[] nanosPerOp = new double[ROUNDS];
+		final long allocatedBefore = allocatedBytes();
+		for (int i = 0; i < ROUNDS; ++i)
+		{
+			nanosPerOp[i] = (double) time(ops) / ops;
+		}
+		final long allocatedAfter = allocatedBytes();
+		Arrays.sort(nanosPerOp);
+
+		final double bytesPerOp = allocatedBefore < 0 ? -1 : (double) (allocatedAfter - allocatedBefore) / ops / ROUNDS;
+		final String allocated = bytesPerOp < 0 ? "n/a" : String.format(Locale.US, "%.1f", bytesPerOp);
+		System.out.println(String.format(Locale.US, "%-56s %12.1f ns/op %10s B/op", mName, nanosPerOp[ROUNDS / 2], allocated));
+		return bytesPerOp;
+	}
+
+
+	private long time(int ops)
+	{
+		final long start = System.nanoTime();
+		sSink += run(ops);
+		return System.nanoTime() - start;
+	}
+
+
+	/**
+	 * Returns the number of bytes allocated by the current thread so far or -1 if the JVM can't tell.
+	 */
+	private static long allocatedBytes()
+	{
+		final ThreadMXBean bean = THREAD_BEAN;
+		if (bean instanceof com.sun.management.ThreadMXBean)
+		{
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2014 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dmfs.android.view;
+
+/**
+ * A {@link StripSlotBinder.Callback} that stands in for the adapter and the measuring of {@link DrawablePagerTitleStrip}. The titles have the widths of
+ * {@link StripBenchmark#titleWidth(int, boolean)}, have no stable ids, no previews and no labels. It counts the titles it has been asked for and doesn't
+ * allocate anything.
+ *
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+final class FakeSlotCallback implements StripSlotBinder.Callback
+{
+	/**
+	 * The height of a title.
+	 */
+	final static int TITLE_HEIGHT = 96;
+
+	private final StripLayoutEngine mEngine;
+	private final int mPages;
+	private final boolean mVariable;
+	private final int[] mWidths;
+
+	/**
+	 * The number of titles that have been fetched so far, i.e. the calls to <code>getDrawableTitle</code> a real adapter would get.
+	 */
+	int mTitles;
+
+
+	/**
+	 * @param engine
+	 *            The {@link StripLayoutEngine} that gets the sizes of the slots.
+	 * @param pages
+	 *            The number of pages.
+	 * @param variable
+	 *            Whether the titles have variable widths.
+	 * @param slotCount
+	 *            The number of slots.
+	 */
+	FakeSlotCallback(StripLayoutEngine engine, int pages, boolean variable, int slotCount)
+	{
+		mEngine = engine;
+		mPages = pages;
+		mVariable = variable;
+		mWidths = new int[slotCount];
+	}
+
+
+	@Override
+	public int getCount()
+	{
+		return mPages;
+	}
+
+
+	@Override
+	public boolean hasStableIds()
+	{
+		return false;
+	}
+
+
+	@Override
+	public long getTitleId(int position)
+	{
+		return position;
+	}
+
+
+	@Override
+	public boolean isPreviewing()
+	{
+		return false;
+	}
+
+
+	@Override
+	public boolean bindTitle(int slot, int position)
+	{
+		if (position >= 0)
+		{
+			++mTitles;
+		}
+		mWidths[slot] = position >= 0 ? StripBenchmark.titleWidth(position, mVariable) : 0;
+		return true;
+	}
+
+
+	@Override
+	public boolean bindLabel(int slot)
+	{
+		return false;
+	}
+
+
+	@Override
+	public void measureSlot(int slot)
+	{
+		final int width = mWidths[slot];
+		mEngine.setSlotSize(slot, width, width > 0 ? TITLE_HEIGHT : 0, -1);
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2014 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dmfs.android.view;
+
+import java.util.ArrayList;
+
+
+/**
+ * Benchmarks lookups in the sorted list of populated items of {@link ViewPager} by position and by scroll offset, with a linear scan as {@link ViewPager}
+ * does and with a binary search. The list holds the items of an offscreen page limit of 1, 5 and 50, with pages of uniform and of variable width. The binary
+ * search doesn't beat the scan even at a limit of 50, which is why {@link ViewPager} keeps scanning.
+ *
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public final class ItemSearchBenchmark
+{
+	private final static int[] OFFSCREEN_LIMITS = { 1, 5, 50 };
+
+	/**
+	 * The position of the current page, somewhere in the middle of a large adapter.
+	 */
+	private final static int CURRENT_ITEM = 50000;
+
+
+	public static void main(String[] args)
+	{
+		for (int limit : OFFSCREEN_LIMITS)
+		{
+			for (boolean variable : new boolean[] { false, true })
+			{
+				final ArrayList<ViewPager.ItemInfo> items = createItems(limit, variable);
+				new LinearPositionBench(items, name("position", "linear", limit, variable)).measure();
+				new BinaryPositionBench(items, name("position", "binary", limit, variable)).measure();
+				new LinearOffsetBench(items, name("offset", "linear", limit, variable)).measure();
+				new BinaryOffsetBench(items, name("offset", "binary", limit, variable)).measure();
+			}
+		}
+	}
+
+
+	/**
+	 * Create the items a pager populates around {@link #CURRENT_ITEM} with the given offscreen page limit.
+	 */
+	static ArrayList<ViewPager.ItemInfo> createItems(int offscreenLimit, boolean variable)
+	{
+		final ArrayList<ViewPager.ItemInfo> items = new ArrayList<ViewPager.ItemInfo>();
+		float offset = 0;
+		for (int position = CURRENT_ITEM - offscreenLimit; position <= CURRENT_ITEM + offscreenLimit; ++position)
+		{
+			final ViewPager.ItemInfo ii = new ViewPager.ItemInfo();
+			ii.position = position;
+			ii.widthFactor = variable ? 0.5f + (position * 7919 & 0x7fffffff) % 6 * 0.1f : 1f;
+			ii.offset = offset;
+			offset += ii.widthFactor;
+			items.add(ii);
+		}
+		return items;
+	}
+
+
+	static String name(String lookup, String implementation, int offscreenLimit, boolean variable)
+	{
+		return String.format("%-8s %-6s limit=%-3d %s", lookup, implementation, offscreenLimit, variable ? "variable" : "uniform");
+	}
+
+	/**
+	 * Looks up the index of random positions, like <code>infoForPosition(int)</code> and <code>populate()</code> do. Each implementation has a subclass
+	 * with its own loop, so the timed loop doesn't dispatch between them.
+	 */
+	private abstract static class PositionBench extends Bench
+	{
+		final ArrayList<ViewPager.ItemInfo> mItems;
+		final int mFirst;
+		final int mCount;
+		int mSeed = 1;
+
+
+		PositionBench(ArrayList<ViewPager.ItemInfo> items, String name)
+		{
+			super(name);
+			mItems = items;
+			mFirst = items.get(0).position;
+			mCount = items.size();
+		}
+	}
+
+	/**
+	 * Looks up the positions with a linear scan.
+	 */
+	private final static class LinearPositionBench extends PositionBench
+	{
+		LinearPositionBench(ArrayList<ViewPager.ItemInfo> items, String name)
+		{
+			super(items, name);
+		}
+
+
+		@Override
+		long run(int ops)
+		{
+			final ArrayList<ViewPager.ItemInfo> items = mItems;
+			long result = 0;
+			for (int i = 0; i < ops; ++i)
+			{
+				mSeed = mSeed * 1103515245 + 12345;
+				final int position = mFirst + (mSeed >>> 8) % mCount;
+				int index = 0;
+				for (int l = items.size(); index < l; ++index)
+				{
+					if (items.get(index).position >= position)
+					{
+						break;
+					}
+				}
+				result += index;
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Looks up the positions with a binary search.
+	 */
+	private final static class BinaryPositionBench extends PositionBench
+	{
+		BinaryPositionBench(ArrayList<ViewPager.ItemInfo> items, String name)
+		{
+			super(items, name);
+		}
+
+
+		@Override
+		long run(int ops)
+		{
+			final ArrayList<ViewPager.ItemInfo> items = mItems;
+			long result = 0;
+			for (int i = 0; i < ops; ++i)
+			{
+				mSeed = mSeed * 1103515245 + 12345;
+				final int position = mFirst + (mSeed >>> 8) % mCount;
+				int low = 0;
+				int high = items.size();
+				while (low < high)
+				{
+					final int mid = (low + high) >>> 1;
+					if (items.get(mid).position < position)
+					{
+						low = mid + 1;
+					}
+					else
+					{
+						high = mid;
+					}
+				}
+				result += low;
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Looks up the index of the item at random scroll offsets, like <code>infoForCurrentScrollPosition()</code> does. Each implementation has a subclass with
+	 * its own loop, so the timed loop doesn't dispatch between them.
+	 */
+	private abstract static class OffsetBench extends Bench
+	{
+		final ArrayList<ViewPager.ItemInfo> mItems;
+		final float mMaxOffset;
+		int mSeed = 1;
+
+
+		OffsetBench(ArrayList<ViewPager.ItemInfo> items, String name)
+		{
+			super(name);
+			mItems = items;
+			final ViewPager.ItemInfo last = items.get(items.size() - 1);
+			mMaxOffset = last.offset + last.widthFactor;
+		}
+	}
+
+	/**
+	 * Looks up the offsets with a linear scan.
+	 */
+	private final static class LinearOffsetBench extends OffsetBench
+	{
+		LinearOffsetBench(ArrayList<ViewPager.ItemInfo> items, String name)
+		{
+			super(items, name);
+		}
+
+
+		@Override
+		long run(int ops)
+		{
+			final ArrayList<ViewPager.ItemInfo> items = mItems;
+			long result = 0;
+			for (int i = 0; i < ops; ++i)
+			{
+				mSeed = mSeed * 1103515245 + 12345;
+				final float offset = ((mSeed >>> 8) & 0xffff) / 65536f * mMaxOffset;
+				int index = 0;
+				for (int l = items.size(); index < l - 1; ++index)
+				{
+					if (items.get(index + 1).offset > offset)
+					{
+						break;
+					}
+				}
+				result += index;
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Looks up the offsets with a binary search.
+	 */
+	private final static class BinaryOffsetBench extends OffsetBench
+	{
+		BinaryOffsetBench(ArrayList<ViewPager.ItemInfo> items, String name)
+		{
+			super(items, name);
+		}
+
+
+		@Override
+		long run(int ops)
+		{
+			final ArrayList<ViewPager.ItemInfo> items = mItems;
+			long result = 0;
+			for (int i = 0; i < ops; ++i)
+			{
+				mSeed = mSeed * 1103515245 + 12345;
+				final float offset = ((mSeed >>> 8) & 0xffff) / 65536f * mMaxOffset;
+				int low = 0;
+				int high = items.size() - 1;
+				while (low < high)
+				{
+					final int mid = (low + high + 1) >>> 1;
+					if (items.get(mid).offset <= offset)
+					{
+						low = mid;
+					}
+					else
+					{
+						high = mid - 1;
+					}
+				}
+				result += low;
+			}
+			return result;
+		}
+	}
+}
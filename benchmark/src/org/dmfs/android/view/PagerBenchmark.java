@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2014 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dmfs.android.view;
+
+import java.util.ArrayList;
+
+
+/**
+ * Benchmarks the page offset math of {@link ViewPager}, i.e.
+ * {@link ViewPager#calculatePageOffsets(ArrayList, ViewPager.PageWidths, ViewPager.ItemInfo, int, ViewPager.ItemInfo, float)},
+ * {@link ViewPager#infoForScrollOffset(ArrayList, ViewPager.PageWidths, float, float, ViewPager.ItemInfo)} and
+ * {@link ViewPager#determineTargetPage(ArrayList, int, int, float, int, int, int, int)}. Every benchmark runs with 3, 100 and 100,000 pages and with pages of
+ * uniform and of variable width. The items are the ones a pager with the default offscreen page limit populates.
+ *
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public final class PagerBenchmark
+{
+	private final static int[] PAGE_COUNTS = { 3, 100, 100000 };
+
+	/**
+	 * The default offscreen page limit of {@link ViewPager}.
+	 */
+	private final static int OFFSCREEN_LIMIT = 1;
+
+	/**
+	 * The page margin relative to the page width.
+	 */
+	private final static float MARGIN_OFFSET = 0.02f;
+
+	/**
+	 * The fling thresholds of a device with a density of 3.
+	 */
+	private final static int FLING_DISTANCE = 75;
+	private final static int MINIMUM_VELOCITY = 1200;
+
+
+	public static void main(String[] args)
+	{
+		for (int pages : PAGE_COUNTS)
+		{
+			for (boolean variable : new boolean[] { false, true })
+			{
+				new OffsetsBench(pages, variable, false).measure();
+				new OffsetsBench(pages, variable, true).measure();
+				new ScrollPositionBench(pages, variable).measure();
+				new TargetPageBench(pages, variable).measure();
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the width factors of the pages, like {@link android.support.v4.view.PagerAdapter#getPageWidth(int)} does.
+	 */
+	static ViewPager.PageWidths createWidths(boolean variable)
+	{
+		if (!variable)
+		{
+			return new ViewPager.PageWidths()
+			{
+				@Override
+				public float getPageWidth(int position)
+				{
+					return 1f;
+				}
+			};
+		}
+
+		return new ViewPager.PageWidths()
+		{
+			@Override
+			public float getPageWidth(int position)
+			{
+				return 0.5f + (position * 7919 & 0x7fffffff) % 6 * 0.1f;
+			}
+		};
+	}
+
+
+	/**
+	 * Create the items a pager populates around the given page and lay them out.
+	 */
+	static ArrayList<ViewPager.ItemInfo> createItems(int pages, int currentItem, ViewPager.PageWidths widths)
+	{
+		final ArrayList<ViewPager.ItemInfo> items = new ArrayList<ViewPager.ItemInfo>();
+		int curIndex = 0;
+		for (int position = Math.max(0, currentItem - OFFSCREEN_LIMIT), last = Math.min(pages - 1, currentItem + OFFSCREEN_LIMIT); position <= last; ++position)
+		{
+			final ViewPager.ItemInfo ii = new ViewPager.ItemInfo();
+			ii.position = position;
+			ii.widthFactor = widths.getPageWidth(position);
+			if (position == currentItem)
+			{
+				curIndex = items.size();
+			}
+			items.add(ii);
+		}
+		ViewPager.calculatePageOffsets(items, widths, items.get(curIndex), curIndex, null, MARGIN_OFFSET);
+		return items;
+	}
+
+
+	static String name(String benchmark, int pages, boolean variable)
+	{
+		return String.format("%-15s pages=%-6d %s", benchmark, pages, variable ? "variable" : "uniform");
+	}
+
+	/**
+	 * Computes the page offsets after a page change, like <code>populate()</code> does. A swipe moves to the next page, a jump moves from the first to the last
+	 * page like {@link ViewPager#setCurrentItem(int)} does, so the widths of all pages in between are summed up.
+	 */
+	private final static class OffsetsBench extends Bench
+	{
+		private final ArrayList<ViewPager.ItemInfo> mItems;
+		private final ViewPager.PageWidths mWidths;
+		private final ViewPager.ItemInfo mCurItem;
+		private final int mCurIndex;
+		private final ViewPager.ItemInfo mOldCurInfo;
+
+
+		OffsetsBench(int pages, boolean variable, boolean jump)
+		{
+			super(name(jump ? "offsets jump" : "offsets swipe", pages, variable));
+			mWidths = createWidths(variable);
+			final int currentItem = jump ? pages - 1 : pages / 2;
+			mItems = createItems(pages, currentItem, mWidths);
+			int curIndex = 0;
+			while (mItems.get(curIndex).position < currentItem)
+			{
+				curIndex++;
+			}
+			mCurIndex = curIndex;
+			mCurItem = mItems.get(mCurIndex);
+			if (jump)
+			{
+				// the old item has been removed from the items by now
+				mOldCurInfo = new ViewPager.ItemInfo();
+				mOldCurInfo.position = 0;
+				mOldCurInfo.widthFactor = mWidths.getPageWidth(0);
+			}
+			else
+			{
+				mOldCurInfo = mItems.get(mCurIndex - 1);
+			}
+		}
+
+
+		@Override
+		long run(int ops)
+		{
+			final ArrayList<ViewPager.ItemInfo> items = mItems;
+			long result = 0;
+			for (int i = 0; i < ops; ++i)
+			{
+				ViewPager.calculatePageOffsets(items, mWidths, mCurItem, mCurIndex, mOldCurInfo, MARGIN_OFFSET);
+				result += (long) items.get(items.size() - 1).offset;
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Looks up the page at random scroll offsets within the populated pages, like a drag or a fake drag does on every move.
+	 */
+	private final static class ScrollPositionBench extends Bench
+	{
+		private final ArrayList<ViewPager.ItemInfo> mItems;
+		private final ViewPager.PageWidths mWidths;
+		private final ViewPager.ItemInfo mTempItem = new ViewPager.ItemInfo();
+		private final float mMinOffset;
+		private final float mRange;
+		private int mSeed = 1;
+
+
+		ScrollPositionBench(int pages, boolean variable)
+		{
+			super(name("scroll position", pages, variable));
+			mWidths = createWidths(variable);
+			mItems = createItems(pages, pages / 2, mWidths);
+			final ViewPager.ItemInfo first = mItems.get(0);
+			final ViewPager.ItemInfo last = mItems.get(mItems.size() - 1);
+			mMinOffset = first.offset;
+			mRange = last.offset + last.widthFactor - first.offset;
+		}
+
+
+		@Override
+		long run(int ops)
+		{
+			final ArrayList<ViewPager.ItemInfo> items = mItems;
+			long result = 0;
+			for (int i = 0; i < ops; ++i)
+			{
+				mSeed = mSeed * 1103515245 + 12345;
+				final float scrollOffset = mMinOffset + ((mSeed >>> 8) & 0xffff) / 65536f * mRange;
+				result += ViewPager.infoForScrollOffset(items, mWidths, scrollOffset, MARGIN_OFFSET, mTempItem).position;
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Determines the target page of random drags and flings, like the end of a drag does.
+	 */
+	private final static class TargetPageBench extends Bench
+	{
+		private final ArrayList<ViewPager.ItemInfo> mItems;
+		private final int mCurrentItem;
+		private int mSeed = 1;
+
+
+		TargetPageBench(int pages, boolean variable)
+		{
+			super(name("target page", pages, variable));
+			mCurrentItem = pages / 2;
+			mItems = createItems(pages, mCurrentItem, createWidths(variable));
+		}
+
+
+		@Override
+		long run(int ops)
+		{
+			final ArrayList<ViewPager.ItemInfo> items = mItems;
+			final int currentItem = mCurrentItem;
+			long result = 0;
+			for (int i = 0; i < ops; ++i)
+			{
+				mSeed = mSeed * 1103515245 + 12345;
+				final int random = mSeed >>> 8;
+				final int currentPage = currentItem - (random & 1);
+				final float pageOffset = ((random >>> 1) & 0xff) / 256f;
+				final int velocity = ((random >>> 9) & 0xfff) - 0x800;
+				final int deltaX = ((random >>> 21) & 0xff) - 0x80;
+				result += ViewPager.determineTargetPage(items, currentItem, currentPage, pageOffset, velocity, deltaX, FLING_DISTANCE, MINIMUM_VELOCITY);
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright (C) 2014 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dmfs.android.view;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.PixelFormat;
+import android.graphics.drawable.Drawable;
+
+
+/**
+ * Benchmarks the hot paths of the title strips that don't need an Android runtime, i.e. the slot layout of {@link StripLayoutEngine}, the positioning pass of
+ * {@link StripSlotBinder} and the lookups of {@link DrawableTitleCache}. Every benchmark runs with 3, 100 and 100,000 pages and with titles of uniform and of
+ * variable width.
+ * <p>
+ * Laying out and scrolling the slots must not allocate anything. If any of these benchmarks allocates memory the process exits with status 1 after all
+ * benchmarks have run. This covers the slot binding, the slot layout and the dirty region of the positioning pass. It doesn't cover the parts that need a
+ * view, i.e. laying out the slot views, invalidating the strip, creating label layouts when a slot is bound and setting the bounds of the drawables when
+ * they are drawn.
+ * </p>
+ * <p>
+ * The cache benchmarks need an implementation of {@link Drawable} that can be instantiated on the JVM. The stubs in the <code>android.jar</code> of the SDK
+ * throw on construction, so these benchmarks are skipped unless an implementation like Robolectric's <code>android-all</code> is on the class path.
+ * </p>
+ *
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public final class StripBenchmark
+{
+	private final static int[] PAGE_COUNTS = { 3, 100, 100000 };
+
+	/**
+	 * The strip metrics of a typical phone in portrait mode.
+	 */
+	private final static int STRIP_WIDTH = 1080;
+	private final static int STRIP_HEIGHT = 144;
+	private final static int PADDING = 24;
+	private final static int SPACING = 48;
+
+	/**
+	 * The maximum number of slots of {@link DrawablePagerTitleStrip}.
+	 */
+	private final static int MAX_SLOT_COUNT = 31;
+
+
+	public static void main(String[] args)
+	{
+		boolean allocationFree = true;
+		for (int pages : PAGE_COUNTS)
+		{
+			for (boolean variable : new boolean[] { false, true })
+			{
+				allocationFree &= isAllocationFree(new LayoutBench(pages, variable).measure());
+				allocationFree &= isAllocationFree(new ScrollBench(pages, variable).measure());
+				allocationFree &= isAllocationFree(new PositionBench(pages, variable).measure());
+			}
+		}
+
+		if (canCreateDrawables())
+		{
+			for (int pages : PAGE_COUNTS)
+			{
+				new CacheBench(pages, 16).measure();
+				if (pages > 16)
+				{
+					new CacheBench(pages, pages).measure();
+				}
+			}
+		}
+		else
+		{
+			System.out.println("DrawableTitleCache benchmarks skipped, android.graphics.drawable.Drawable can't be instantiated on this class path");
+		}
+
+		if (!allocationFree)
+		{
+			System.out.println("FAILED, laying out or scrolling the slots allocates memory");
+			System.exit(1);
+		}
+	}
+
+
+	/**
+	 * Returns whether a benchmark that allocated the given number of bytes per operation is free of allocations. A JVM that can't count allocations passes.
+	 */
+	private static boolean isAllocationFree(double bytesPerOp)
+	{
+		return bytesPerOp <= 0;
+	}
+
+
+	/**
+	 * Returns the width of the title of the given position.
+	 */
+	static int titleWidth(int position, boolean variable)
+	{
+		return variable ? 64 + (position * 7919 & 0x7fffffff) % 192 : 160;
+	}
+
+
+	static StripLayoutEngine createEngine(int pages, boolean variable)
+	{
+		final StripLayoutEngine engine = new StripLayoutEngine();
+		final int slotCount = Math.min(MAX_SLOT_COUNT, 2 * pages - 1);
+		engine.setSlotCount(slotCount);
+		for (int i = 0; i < slotCount; ++i)
+		{
+			engine.setSlotSize(engine.slotIndex(i), titleWidth(i, variable), 96, -1);
+		}
+		return engine;
+	}
+
+
+	private static boolean canCreateDrawables()
+	{
+		try
+		{
+			new TitleDrawable();
+			return true;
+		}
+		catch (RuntimeException e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * A single layout pass at varying offsets, like {@link DrawablePagerTitleStrip#updateDrawablePositions(int, float, boolean)} does while the pager moves
+	 * within a page.
+	 */
+	private final static class LayoutBench extends Bench
+	{
+		private final StripLayoutEngine mEngine;
+
+
+		LayoutBench(int pages, boolean variable)
+		{
+			super(String.format("layout          pages=%-6d %s", pages, variable ? "variable" : "uniform"));
+			mEngine = createEngine(pages, variable);
+		}
+
+
+		@Override
+		long run(int ops)
+		{
+			final StripLayoutEngine engine = mEngine;
+			long result = 0;
+			for (int i = 0; i < ops; ++i)
+			{
+				engine.layout(STRIP_WIDTH, STRIP_HEIGHT, PADDING, 0, PADDING, 0, SPACING, StripLayoutEngine.GRAVITY_BOTTOM, (i % 100) / 100f);
+				result += engine.getLeft(engine.centerSlot());
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Scrolls through all pages in steps of 1/20 page. At every page boundary the ring is rotated and the entering slot is measured, like the strip does when
+	 * it follows the pager.
+	 */
+	private final static class ScrollBench extends Bench
+	{
+		private final StripLayoutEngine mEngine;
+		private final int mPages;
+		private final boolean mVariable;
+		private int mPage;
+		private int mStep;
+
+
+		ScrollBench(int pages, boolean variable)
+		{
+			super(String.format("scroll          pages=%-6d %s", pages, variable ? "variable" : "uniform"));
+			mEngine = createEngine(pages, variable);
+			mPages = pages;
+			mVariable = variable;
+		}
+
+
+		@Override
+		long run(int ops)
+		{
+			final StripLayoutEngine engine = mEngine;
+			final int slotCount = engine.getSlotCount();
+			final int half = slotCount / 2;
+			long result = 0;
+			for (int i = 0; i < ops; ++i)
+			{
+				if (++mStep == 20)
+				{
+					mStep = 0;
+					if (mPage == mPages - 1)
+					{
+						// jump back to the first page
+						engine.rotate(-mPage);
+						mPage = 0;
+					}
+					else
+					{
+						engine.rotate(1);
+						++mPage;
+						engine.setSlotSize(engine.slotIndex(slotCount - 1), titleWidth(mPage + half, mVariable), 96, -1);
+					}
+				}
+				engine.layout(STRIP_WIDTH, STRIP_HEIGHT, PADDING, 0, PADDING, 0, SPACING, StripLayoutEngine.GRAVITY_BOTTOM, mStep / 20f);
+				result += engine.getLeft(engine.centerSlot());
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Scrolls through all pages in steps of 1/20 page, like {@link ScrollBench}, but runs the positioning pass of
+	 * {@link DrawablePagerTitleStrip#updateDrawablePositions(int, float, boolean)} on a {@link StripSlotBinder}, including the dirty region of the slots before
+	 * and after the layout. At every page boundary the ring is rotated, the layout binds the slot that enters the strip from a {@link FakeSlotCallback}.
+	 */
+	private final static class PositionBench extends Bench
+	{
+		private final StripLayoutEngine mEngine;
+		private final StripSlotBinder mBinder;
+		private final int mPages;
+		private int mPage;
+		private int mStep;
+
+
+		PositionBench(int pages, boolean variable)
+		{
+			super(String.format("position pass   pages=%-6d %s", pages, variable ? "variable" : "uniform"));
+			final StripLayoutEngine engine = mEngine = new StripLayoutEngine();
+			final int slotCount = Math.min(MAX_SLOT_COUNT, 2 * pages - 1);
+			mBinder = new StripSlotBinder(engine, new FakeSlotCallback(engine, pages, variable, slotCount));
+			mBinder.setSlotCount(slotCount);
+			mPages = pages;
+		}
+
+
+		@Override
+		long run(int ops)
+		{
+			final StripLayoutEngine engine = mEngine;
+			final StripSlotBinder binder = mBinder;
+			long result = 0;
+			for (int i = 0; i < ops; ++i)
+			{
+				if (++mStep == 20)
+				{
+					mStep = 0;
+					// jump back to the first page after the last one
+					mPage = mPage == mPages - 1 ? 0 : mPage + 1;
+				}
+				if (mPage != binder.getCurrentPage())
+				{
+					binder.shift(mPage);
+				}
+				engine.clearDirtyRegion();
+				engine.addVisibleSlotsToDirtyRegion();
+				result += binder.layout(STRIP_WIDTH, STRIP_HEIGHT, PADDING, 0, PADDING, 0, SPACING, StripLayoutEngine.GRAVITY_BOTTOM, mStep / 20f);
+				engine.addVisibleSlotsToDirtyRegion();
+				result += engine.getDirtyRight() - engine.getDirtyLeft();
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Looks up titles in a {@link DrawableTitleCache} and puts the missing ones into it, like the strip does when it binds a slot.
+	 */
+	private final static class CacheBench extends Bench
+	{
+		private final DrawableTitleCache mCache = new DrawableTitleCache(32);
+		private final Drawable[] mDrawables = new Drawable[64];
+		private final int mPages;
+		private final int mRange;
+		private int mCenter;
+		private int mSeed = 1;
+
+
+		/**
+		 * @param pages
+		 *            The number of pages.
+		 * @param range
+		 *            The number of positions around the current page that are looked up.
+		 */
+		CacheBench(int pages, int range)
+		{
+			super(String.format("cache get/put   pages=%-6d range=%d", pages, Math.min(pages, range)));
+			mPages = pages;
+			mRange = Math.min(pages, range);
+			for (int i = 0; i < mDrawables.length; ++i)
+			{
+				mDrawables[i] = new TitleDrawable();
+			}
+		}
+
+
+		@Override
+		long run(int ops)
+		{
+			final DrawableTitleCache cache = mCache;
+			long result = 0;
+			for (int i = 0; i < ops; ++i)
+			{
+				// move the current page every 64 lookups
+				if ((i & 63) == 0)
+				{
+					mCenter = (mCenter + 1) % mPages;
+				}
+				mSeed = mSeed * 1103515245 + 12345;
+				final int position = (mCenter + ((mSeed >>> 8) % mRange)) % mPages;
+				Drawable drawable = cache.get(position);
+				if (drawable == null)
+				{
+					drawable = mDrawables[position & 63];
+					cache.put(position, drawable);
+				}
+				result += cache.size();
+			}
+			return result;
+		}
+	}
+
+	private final static class TitleDrawable extends Drawable
+	{
+		@Override
+		public void draw(Canvas canvas)
+		{
+		}
+
+
+		@Override
+		public void setAlpha(int alpha)
+		{
+		}
+
+
+		@Override
+		public void setColorFilter(ColorFilter cf)
+		{
+		}
+
+
+		@Override
+		public int getOpacity()
+		{
+			return PixelFormat.TRANSLUCENT;
+		}
+	}
+}
@@ -23,9 +23,14 @@ import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.support.v4.view.PagerAdapter;
 import android.support.v4.view.PagerTitleStrip;
+import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
+import android.widget.ImageView;
+import android.widget.Scroller;
 
 
 /**
@@ -42,6 +47,27 @@ public class DrawablePagerTabStrip extends DrawablePagerTitleStrip
 {
 	private static final String TAG = "PagerTabStrip";
 
+	/**
+	 * Indicator mode that puts the indicator under the title that's closest to the center of the strip. This is the default.
+	 */
+	public static final int INDICATOR_MODE_CENTER = 0;
+
+	/**
+	 * Indicator mode that moves the indicator smoothly from one title to the next while the pager is being scrolled, adjusting its width on the way.
+	 */
+	public static final int INDICATOR_MODE_INTERPOLATED = 1;
+
+	/**
+	 * Scroll mode in which dragging the strip drags the pager. This is the default.
+	 */
+	public static final int SCROLL_MODE_PAGER = 0;
+
+	/**
+	 * Scroll mode in which the strip behaves like a horizontal list of all titles. Dragging and flinging the strip scrolls the titles without moving the pager,
+	 * tapping a title moves the pager to its page. The titles follow the pager again as soon as the pager is scrolled.
+	 */
+	public static final int SCROLL_MODE_FREE = 1;
+
 	private static final int INDICATOR_HEIGHT = 3; // dp
 	private static final int MIN_PADDING_BOTTOM = INDICATOR_HEIGHT + 3; // dp
 	private static final int TAB_PADDING = 0; // dp
@@ -50,6 +76,11 @@ public class DrawablePagerTabStrip extends DrawablePagerTitleStrip
 	private static final int FULL_UNDERLINE_HEIGHT = 1; // dp
 	private static final int MIN_STRIP_HEIGHT = 32; // dp
 
+	/**
+	 * The number of seconds the titles would keep moving at the velocity of a fling. This determines how many pages a fling skips.
+	 */
+	private static final float FLING_DURATION = 0.3f;
+
 	private int mIndicatorColor;
 	private int mIndicatorHeight;
 
@@ -59,9 +90,16 @@ public class DrawablePagerTabStrip extends DrawablePagerTitleStrip
 
 	private int mTabPadding;
 
+	private int mIndicatorMode = INDICATOR_MODE_CENTER;
+
 	private final Paint mTabPaint = new Paint();
 	private final Rect mTempRect = new Rect();
 
+	/**
+	 * The bounds of the indicator, updated whenever the slots have been laid out.
+	 */
+	private final Rect mIndicatorRect = new Rect();
+
 	private int mTabAlpha = 0xff;
 
 	private boolean mDrawFullUnderline = false;
@@ -71,7 +109,63 @@ public class DrawablePagerTabStrip extends DrawablePagerTitleStrip
 	private boolean mIgnoreTap;
 	private float mInitialMotionX;
 	private float mInitialMotionY;
+	private float mLastMotionX;
 	private int mTouchSlop;
+	private int mMinimumFlingVelocity;
+	private VelocityTracker mVelocityTracker;
+
+	/**
+	 * Whether the strip is being dragged to scrub the pager. {@link #mScrubPosition} is the position in pages the finger has scrubbed to, with
+	 * {@link #mScrubPitch} strip pixels per page. The pager can lag behind that position, so it's tracked separately.
+	 */
+	private boolean mScrubbing;
+	private float mScrubPosition;
+	private int mScrubPitch;
+
+	private int mScrollMode = SCROLL_MODE_PAGER;
+
+	/**
+	 * The state of the titles in {@link #SCROLL_MODE_FREE}. While the titles are detached they don't follow the pager. Their scroll position is
+	 * {@link #mFreeScrollX} pixels, with {@link #mFreePitch} pixels per title.
+	 */
+	private final Scroller mScroller;
+	private boolean mDetached;
+	private boolean mReattachWhenSettled;
+	private boolean mIgnorePagerScroll;
+	private boolean mFreeDragging;
+	private boolean mCaughtFling;
+	private float mFreeScrollX;
+	private float mFreePitch;
+
+	/**
+	 * Moves the pager to the page of a title that has been clicked using the keyboard or an accessibility service. It's shared by all slot views.
+	 */
+	private final OnClickListener mTitleClickListener = new OnClickListener()
+	{
+		@Override
+		public void onClick(View v)
+		{
+			final ImageView[] views = mImageViews;
+			if (views == null || mPager == null)
+			{
+				return;
+			}
+
+			// the slots rotate, so look up the position the clicked slot currently shows
+			for (int slot = 0, l = views.length; slot < l; ++slot)
+			{
+				if (views[slot] == v)
+				{
+					final int position = mSlotBinder.getPosition(slot);
+					if (position >= 0)
+					{
+						mPager.setCurrentItem(position);
+					}
+					return;
+				}
+			}
+		}
+	};
 
 
 	public DrawablePagerTabStrip(Context context)
@@ -96,7 +190,10 @@ public class DrawablePagerTabStrip extends DrawablePagerTitleStrip
 		mTabPadding = (int) (TAB_PADDING * density + 0.5f);
 		mFullUnderlineHeight = (int) (FULL_UNDERLINE_HEIGHT * density + 0.5f);
 		mMinStripHeight = (int) (MIN_STRIP_HEIGHT * density + 0.5f);
-		mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+		final ViewConfiguration configuration = ViewConfiguration.get(context);
+		mTouchSlop = configuration.getScaledTouchSlop();
+		mMinimumFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+		mScroller = new Scroller(context);
 
 		// Enforce restrictions
 		setPadding(getPaddingLeft(), getPaddingTop(), getPaddingRight(), getPaddingBottom());
@@ -121,7 +218,63 @@ public class DrawablePagerTabStrip extends DrawablePagerTitleStrip
 	{
 		mIndicatorColor = color;
 		mTabPaint.setColor(mIndicatorColor);
-		invalidate();
+		invalidate(mIndicatorRect);
+	}
+
+
+	/**
+	 * Set how the indicator follows the titles while the pager is being scrolled.
+	 * 
+	 * @param indicatorMode
+	 *            Either {@link #INDICATOR_MODE_CENTER} or {@link #INDICATOR_MODE_INTERPOLATED}.
+	 */
+	public void setIndicatorMode(int indicatorMode)
+	{
+		if (indicatorMode != INDICATOR_MODE_CENTER && indicatorMode != INDICATOR_MODE_INTERPOLATED)
+		{
+			throw new IllegalArgumentException("Unknown indicator mode " + indicatorMode);
+		}
+		mIndicatorMode = indicatorMode;
+		requestLayout();
+	}
+
+
+	/**
+	 * @return The current indicator mode, either {@link #INDICATOR_MODE_CENTER} or {@link #INDICATOR_MODE_INTERPOLATED}.
+	 */
+	public int getIndicatorMode()
+	{
+		return mIndicatorMode;
+	}
+
+
+	/**
+	 * Set what happens when the strip is dragged.
+	 * 
+	 * @param scrollMode
+	 *            Either {@link #SCROLL_MODE_PAGER} or {@link #SCROLL_MODE_FREE}.
+	 */
+	public void setScrollMode(int scrollMode)
+	{
+		if (scrollMode != SCROLL_MODE_PAGER && scrollMode != SCROLL_MODE_FREE)
+		{
+			throw new IllegalArgumentException("Unknown scroll mode " + scrollMode);
+		}
+
+		mScrollMode = scrollMode;
+		if (scrollMode == SCROLL_MODE_PAGER && mDetached)
+		{
+			reattach();
+		}
+	}
+
+
+	/**
+	 * @return The current scroll mode, either {@link #SCROLL_MODE_PAGER} or {@link #SCROLL_MODE_FREE}.
+	 */
+	public int getScrollMode()
+	{
+		return mScrollMode;
 	}
 
 
@@ -233,92 +386,537 @@ public class DrawablePagerTabStrip extends DrawablePagerTitleStrip
 	}
 
 
-	// @Override
-	// public boolean onTouchEvent(MotionEvent ev)
-	// {
-	// final int action = ev.getAction();
-	// if (action != MotionEvent.ACTION_DOWN && mIgnoreTap)
-	// {
-	// return false;
-	// }
-	//
-	// // Any tap within touch slop to either side of the current item
-	// // will scroll to prev/next.
-	// final float x = ev.getX();
-	// final float y = ev.getY();
-	// switch (action)
-	// {
-	// case MotionEvent.ACTION_DOWN:
-	// mInitialMotionX = x;
-	// mInitialMotionY = y;
-	// mIgnoreTap = false;
-	// break;
-	//
-	// case MotionEvent.ACTION_MOVE:
-	// if (Math.abs(x - mInitialMotionX) > mTouchSlop || Math.abs(y - mInitialMotionY) > mTouchSlop)
-	// {
-	// mIgnoreTap = true;
-	// }
-	// break;
-	//
-	// case MotionEvent.ACTION_UP:
-	//
-	// if (x < mImageViews[mImageViews.length / 2].getLeft() - mTabPadding)
-	// {
-	// mPager.setCurrentItem(mPager.getCurrentItem() - 1);
-	// }
-	// else if (x > mImageViews[mImageViews.length / 2].getRight() + mTabPadding)
-	// {
-	// mPager.setCurrentItem(mPager.getCurrentItem() + 1);
-	// }
-	//
-	// break;
-	// }
-	//
-	// return true;
-	// }
+	/**
+	 * The strip handles all touches itself, see {@link #onTouchEvent(MotionEvent)}. The slot views only handle clicks from the keyboard and from accessibility
+	 * services.
+	 */
+	@Override
+	public boolean onInterceptTouchEvent(MotionEvent ev)
+	{
+		return true;
+	}
+
+
+	/**
+	 * Handles taps and drags on the strip. Tapping a title moves the pager to its page. In {@link #SCROLL_MODE_PAGER} dragging the strip scrubs the pager, so
+	 * the titles follow the finger, and a fling skips as many pages as the titles would travel at the velocity of the fling. In {@link #SCROLL_MODE_FREE}
+	 * dragging and flinging scrolls the titles only.
+	 */
+	@Override
+	public boolean onTouchEvent(MotionEvent ev)
+	{
+		if (mPager == null || mSlotCount == 0)
+		{
+			return false;
+		}
+
+		final int action = ev.getAction() & MotionEvent.ACTION_MASK;
+		if (action != MotionEvent.ACTION_DOWN && mIgnoreTap && !mScrubbing && !mFreeDragging)
+		{
+			return false;
+		}
+
+		if (mVelocityTracker == null)
+		{
+			mVelocityTracker = VelocityTracker.obtain();
+		}
+		else if (action == MotionEvent.ACTION_DOWN)
+		{
+			// left over from an ignored gesture
+			mVelocityTracker.clear();
+		}
+		mVelocityTracker.addMovement(ev);
+
+		final float x = ev.getX();
+		final float y = ev.getY();
+		switch (action)
+		{
+			case MotionEvent.ACTION_DOWN:
+				mInitialMotionX = mLastMotionX = x;
+				mInitialMotionY = y;
+				mIgnoreTap = false;
+				mScrubbing = false;
+				mFreeDragging = false;
+				// a tap on flinging titles just stops them
+				mCaughtFling = !mScroller.isFinished();
+				if (mCaughtFling)
+				{
+					mScroller.forceFinished(true);
+				}
+				// don't let the pager steal the drag
+				getParent().requestDisallowInterceptTouchEvent(true);
+				break;
+
+			case MotionEvent.ACTION_MOVE:
+				if (mFreeDragging)
+				{
+					freeScrollBy(x - mLastMotionX);
+					mLastMotionX = x;
+				}
+				else if (!mScrubbing)
+				{
+					final float dx = Math.abs(x - mInitialMotionX);
+					final float dy = Math.abs(y - mInitialMotionY);
+					if (dx > mTouchSlop && dx > dy)
+					{
+						mIgnoreTap = true;
+						if (mScrollMode == SCROLL_MODE_FREE)
+						{
+							startFreeDragging(x);
+						}
+						else
+						{
+							startScrubbing(x);
+						}
+					}
+					else if (dx > mTouchSlop || dy > mTouchSlop)
+					{
+						mIgnoreTap = true;
+						getParent().requestDisallowInterceptTouchEvent(false);
+					}
+				}
+				else
+				{
+					scrubBy(x - mLastMotionX);
+					mLastMotionX = x;
+				}
+				break;
+
+			case MotionEvent.ACTION_UP:
+				if (mFreeDragging)
+				{
+					mVelocityTracker.computeCurrentVelocity(1000);
+					stopFreeDragging(mVelocityTracker.getXVelocity());
+				}
+				else if (mScrubbing)
+				{
+					mVelocityTracker.computeCurrentVelocity(1000);
+					stopScrubbing(mVelocityTracker.getXVelocity());
+				}
+				else if (!mIgnoreTap && !mCaughtFling)
+				{
+					onTap(x);
+				}
+				recycleVelocityTracker();
+				break;
+
+			case MotionEvent.ACTION_CANCEL:
+				if (mFreeDragging)
+				{
+					stopFreeDragging(0);
+				}
+				else if (mScrubbing)
+				{
+					stopScrubbing(0);
+				}
+				recycleVelocityTracker();
+				break;
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Start a fake drag of the pager, unless the pager is being dragged already.
+	 */
+	private void startScrubbing(float x)
+	{
+		final int pitch = mLayoutEngine.getWidth(mLayoutEngine.centerSlot()) + getTextSpacing();
+		if (pitch <= 0 || !mPager.beginFakeDrag())
+		{
+			return;
+		}
+
+		// one title on the strip corresponds to one page of the pager
+		mScrubPitch = pitch;
+		mScrubPosition = getScrollPosition();
+		mScrubbing = true;
+		mLastMotionX = x;
+	}
+
+
+	/**
+	 * Move the scrub position by the given distance on the strip and drag the pager after it. The pager can't be dragged beyond the pages it has populated,
+	 * so the page under the strip becomes the current item as soon as it's reached. This populates the pages next to it, so the titles keep following the
+	 * finger across any number of pages.
+	 */
+	private void scrubBy(float dx)
+	{
+		final PagerAdapter adapter = mPager.getAdapter();
+		if (adapter == null)
+		{
+			return;
+		}
+
+		// the titles move with the finger, so dragging to the left scrubs to the following pages
+		mScrubPosition = Math.max(0, Math.min(adapter.getCount() - 1, mScrubPosition - dx / mScrubPitch));
+		while (true)
+		{
+			final int currentItem = mPager.getCurrentItem();
+			// the pager scrolls against the drag, always drag it by the distance that's actually left, not by what it cut off at the last populated page
+			final float distance = getPagerDistance(adapter, mScrubPosition, getScrollPosition());
+			if (Math.abs(distance) < 1)
+			{
+				return;
+			}
+			mPager.fakeDragBy(distance);
+			mPager.followFakeDrag();
+			if (mPager.getCurrentItem() == currentItem)
+			{
+				return;
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the distance in pixels the pager scrolls between the given scroll positions in pages. Pages can be narrower than the pager, so the width of
+	 * every page in between is taken into account, just like the pager does when it computes the offsets of its pages.
+	 */
+	private float getPagerDistance(PagerAdapter adapter, float from, float to)
+	{
+		if (from > to)
+		{
+			return -getPagerDistance(adapter, to, from);
+		}
+
+		final int clientWidth = mPager.getWidth() - mPager.getPaddingLeft() - mPager.getPaddingRight();
+		final int pageMargin = mPager.getPageMargin();
+		float distance = 0;
+		int page = (int) from;
+		float start = from;
+		while (start < to)
+		{
+			final float end = Math.min(to, page + 1);
+			distance += (end - start) * (clientWidth * adapter.getPageWidth(page) + pageMargin);
+			start = end;
+			++page;
+		}
+		return distance;
+	}
+
+
+	/**
+	 * End the fake drag and settle on the page closest to the scrub position or, if the strip has been flung, on the page a fling with the given velocity (in
+	 * pixels per second) would end up at. The pager's own idea of the target page is based on the distances it has been dragged by, so it's not used.
+	 */
+	private void stopScrubbing(float velocity)
+	{
+		mScrubbing = false;
+
+		final PagerAdapter adapter = mPager.getAdapter();
+		if (adapter == null)
+		{
+			mPager.endFakeDrag();
+			return;
+		}
+
+		// the titles move with the finger, so a fling to the left moves to the following pages
+		final float fling = Math.abs(velocity) < mMinimumFlingVelocity ? 0 : velocity * FLING_DURATION / mScrubPitch;
+		final int target = Math.max(0, Math.min(adapter.getCount() - 1, Math.round(mScrubPosition - fling)));
+		// settle on the target right away, so only one page is selected
+		mPager.endFakeDrag(target);
+	}
+
+
+	/**
+	 * Returns the distance between two titles in pixels, estimated from the width of the current title.
+	 */
+	private int getTitlePitch()
+	{
+		return mLayoutEngine.getWidth(mLayoutEngine.centerSlot()) + getTextSpacing();
+	}
+
+
+	/**
+	 * Detach the titles from the pager, so they can be scrolled independently.
+	 */
+	private boolean detach()
+	{
+		final int pitch = getTitlePitch();
+		if (pitch <= 0)
+		{
+			return false;
+		}
+		mFreePitch = pitch;
+		mFreeScrollX = getScrollPosition() * pitch;
+		mDetached = true;
+		mReattachWhenSettled = false;
+		return true;
+	}
+
+
+	/**
+	 * Let the titles follow the pager again.
+	 */
+	private void reattach()
+	{
+		mDetached = false;
+		mReattachWhenSettled = false;
+		mFreeDragging = false;
+		mScroller.forceFinished(true);
+		if (mPager != null)
+		{
+			scrollTitlesTo(mPager.getCurrentItem(), 0);
+		}
+	}
+
+
+	private void startFreeDragging(float x)
+	{
+		if (detach())
+		{
+			mFreeDragging = true;
+			mLastMotionX = x;
+		}
+	}
+
+
+	/**
+	 * Scroll the titles by the given distance in pixels, without moving the pager.
+	 */
+	private void freeScrollBy(float dx)
+	{
+		mFreeScrollX = Math.max(0, Math.min(getMaxFreeScrollX(), mFreeScrollX - dx));
+		updateFreeScrollPosition();
+	}
+
+
+	/**
+	 * Stop dragging the titles and let them fling with the given velocity (in pixels per second).
+	 */
+	private void stopFreeDragging(float velocity)
+	{
+		mFreeDragging = false;
+		if (Math.abs(velocity) >= mMinimumFlingVelocity)
+		{
+			mScroller.fling((int) mFreeScrollX, 0, (int) -velocity, 0, 0, getMaxFreeScrollX(), 0, 0);
+			ViewCompat.postInvalidateOnAnimation(this);
+		}
+	}
+
+
+	private int getMaxFreeScrollX()
+	{
+		final PagerAdapter adapter = mPager != null ? mPager.getAdapter() : null;
+		return adapter == null ? 0 : (int) (Math.max(0, adapter.getCount() - 1) * mFreePitch);
+	}
+
+
+	/**
+	 * Move the titles to {@link #mFreeScrollX}. Only the titles that scroll into the strip are bound, so this takes the same time no matter how far the
+	 * titles have been moved.
+	 */
+	private void updateFreeScrollPosition()
+	{
+		final float position = mFreeScrollX / mFreePitch;
+		final int page = (int) position;
+		scrollTitlesTo(page, position - page);
+	}
+
+
+	@Override
+	public void computeScroll()
+	{
+		if (mDetached && !mScroller.isFinished() && mScroller.computeScrollOffset())
+		{
+			mFreeScrollX = mScroller.getCurrX();
+			updateFreeScrollPosition();
+
+			if (!mScroller.isFinished())
+			{
+				ViewCompat.postInvalidateOnAnimation(this);
+			}
+			else if (mReattachWhenSettled)
+			{
+				// the titles have arrived at the current page of the pager
+				mDetached = false;
+				mReattachWhenSettled = false;
+			}
+		}
+	}
+
+
+	@Override
+	void onPagerScrolled(int position, float positionOffset)
+	{
+		if (mDetached)
+		{
+			if (mIgnorePagerScroll)
+			{
+				return;
+			}
+			// the pager has been moved by someone else, follow it again
+			mDetached = false;
+			mReattachWhenSettled = false;
+			mFreeDragging = false;
+			mScroller.forceFinished(true);
+		}
+		super.onPagerScrolled(position, positionOffset);
+	}
+
+
+	@Override
+	void onDataSetChanged()
+	{
+		if (mDetached)
+		{
+			// the titles might have moved or be gone, so the free scroll position is meaningless now
+			reattach();
+		}
+	}
+
+
+	/**
+	 * Move the pager to the page of the title at the given position, if any.
+	 */
+	private void onTap(float x)
+	{
+		final StripLayoutEngine engine = mLayoutEngine;
+		final int halfSpacing = getTextSpacing() / 2;
+		for (int i = 0, l = mSlotCount; i < l; ++i)
+		{
+			final int position = mSlotBinder.getPosition(i);
+			if (position >= 0 && engine.getAlpha(i) > 0 && x >= engine.getLeft(i) - halfSpacing && x < engine.getRight(i) + halfSpacing)
+			{
+				if (mScrollMode == SCROLL_MODE_FREE && detach())
+				{
+					// jump to the page right away and scroll the titles there smoothly, they follow the pager again once they've arrived
+					mIgnorePagerScroll = true;
+					mPager.setCurrentItem(position, false);
+					mIgnorePagerScroll = false;
+
+					mReattachWhenSettled = true;
+					mScroller.startScroll((int) mFreeScrollX, 0, (int) (position * mFreePitch - mFreeScrollX), 0);
+					ViewCompat.postInvalidateOnAnimation(this);
+				}
+				else
+				{
+					mPager.setCurrentItem(position);
+				}
+				return;
+			}
+		}
+	}
+
+
+	private void recycleVelocityTracker()
+	{
+		if (mVelocityTracker != null)
+		{
+			mVelocityTracker.recycle();
+			mVelocityTracker = null;
+		}
+	}
+
 
 	@Override
 	protected void onDraw(Canvas canvas)
 	{
 		super.onDraw(canvas);
 
-		final int height = getHeight();
-		final int bottom = height;
-		final int left = mImageViews[mImageViews.length / 2].getLeft() - mTabPadding;
-		final int right = mImageViews[mImageViews.length / 2].getRight() + mTabPadding;
-		final int top = bottom - mIndicatorHeight;
+		if (mSlotCount == 0 || mIndicatorRect.isEmpty())
+		{
+			return;
+		}
 
 		mTabPaint.setColor(mTabAlpha << 24 | (mIndicatorColor & 0xFFFFFF));
-		canvas.drawRect(left, top, right, bottom, mTabPaint);
+		canvas.drawRect(mIndicatorRect, mTabPaint);
 	}
 
 
 	@Override
-	void updateAdapter(PagerAdapter oldAdapter, PagerAdapter newAdapter)
+	void onSlotsLaidOut(float positionOffset)
 	{
-		super.updateAdapter(oldAdapter, newAdapter);
+		final StripLayoutEngine engine = mLayoutEngine;
+		final int half = mSlotCount / 2;
+		final int center = engine.slotIndex(half);
+
+		// the title the current one is moving towards, if there is any
+		final int next = half + 1 < mSlotCount && positionOffset > 0 ? engine.slotIndex(half + 1) : -1;
+		final boolean hasNext = next >= 0 && mSlotBinder.getPosition(next) >= 0;
 
-		if (mImageViews != null)
+		int left;
+		int right;
+		if (mDetached)
 		{
-			for (int i = 0, l = mImageViews.length; i < l; ++i)
+			// the titles don't follow the pager, so find the title of the current page, if it's visible at all
+			final int slot = findSlot(mPager != null ? mPager.getCurrentItem() : -1);
+			if (slot < 0)
 			{
-				if (i == l / 2)
-				{
-					continue;
-				}
-				final int x = i - l / 2;
+				setIndicatorBounds(0, 0, 0, 0);
+				return;
+			}
+			left = engine.getLeft(slot);
+			right = engine.getRight(slot);
+		}
+		else if (!hasNext)
+		{
+			left = engine.getLeft(center);
+			right = engine.getRight(center);
+		}
+		else if (mIndicatorMode == INDICATOR_MODE_INTERPOLATED)
+		{
+			left = engine.getLeft(center) + (int) ((engine.getLeft(next) - engine.getLeft(center)) * positionOffset);
+			right = engine.getRight(center) + (int) ((engine.getRight(next) - engine.getRight(center)) * positionOffset);
+		}
+		else
+		{
+			// jump to the next title once it's closer to the center
+			final int slot = positionOffset > 0.5f ? next : center;
+			left = engine.getLeft(slot);
+			right = engine.getRight(slot);
+		}
+		left -= mTabPadding;
+		right += mTabPadding;
 
-				mImageViews[i].setFocusable(true);
-				mImageViews[i].setOnClickListener(new OnClickListener()
-				{
-					@Override
-					public void onClick(View v)
-					{
-						mPager.setCurrentItem(mPager.getCurrentItem() + x);
-					}
-				});
+		final int bottom = getHeight();
+		setIndicatorBounds(left, bottom - mIndicatorHeight, right, bottom);
+	}
+
+
+	/**
+	 * Returns the visible slot that shows the given position or -1 if no visible slot shows it.
+	 */
+	private int findSlot(int position)
+	{
+		for (int i = 0, l = mSlotCount; i < l; ++i)
+		{
+			if (mSlotBinder.getPosition(i) == position && mLayoutEngine.getAlpha(i) > 0)
+			{
+				return i;
 			}
 		}
+		return -1;
+	}
+
+
+	/**
+	 * Move the indicator and invalidate its old and new area.
+	 */
+	private void setIndicatorBounds(int left, int top, int right, int bottom)
+	{
+		final Rect indicator = mIndicatorRect;
+		if (indicator.left == left && indicator.top == top && indicator.right == right && indicator.bottom == bottom)
+		{
+			return;
+		}
+
+		// redraw the old and the new indicator area only
+		final Rect dirty = mTempRect;
+		dirty.set(indicator);
+		dirty.union(left, top, right, bottom);
+		indicator.set(left, top, right, bottom);
+		invalidate(dirty);
+	}
+
+
+	@Override
+	void onSlotViewCreated(int slot, ImageView view)
+	{
+		// let keyboard and accessibility users move to a title, touches are handled by the strip
+		view.setFocusable(true);
+		view.setOnClickListener(mTitleClickListener);
 	}
 }
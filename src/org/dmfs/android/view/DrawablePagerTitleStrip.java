@@ -17,16 +17,31 @@
 package org.dmfs.android.view;
 
 import java.lang.ref.WeakReference;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.database.DataSetObserver;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
 import android.os.Build.VERSION;
+import android.os.Handler;
+import android.os.SystemClock;
 import android.support.v4.view.PagerAdapter;
 import android.support.v4.view.PagerTabStrip;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.view.Gravity;
 import android.view.ViewGroup;
 import android.view.ViewParent;
@@ -47,25 +62,173 @@ public class DrawablePagerTitleStrip extends ViewGroup implements ViewPager.Deco
 {
 	private static final String TAG = "PagerTitleStrip";
 
+	/**
+	 * Render mode that shows each title in its own {@link ImageView}. This is the default.
+	 */
+	public static final int RENDER_MODE_VIEWS = 0;
+
+	/**
+	 * Render mode that draws the titles directly onto the canvas of the strip, without any child views.
+	 */
+	public static final int RENDER_MODE_CANVAS = 1;
+
+	/**
+	 * Don't show any labels. This is the default.
+	 */
+	public static final int LABEL_NONE = 0;
+
+	/**
+	 * Show the page title of each position below its title drawable.
+	 */
+	public static final int LABEL_BELOW = 1;
+
+	/**
+	 * Show the page title of each position to the right of its title drawable.
+	 */
+	public static final int LABEL_BESIDE = 2;
+
 	ViewPager mPager;
+
+	private int mRenderMode = RENDER_MODE_VIEWS;
+
+	/**
+	 * The number of title slots.
+	 */
+	int mSlotCount;
+
+	/**
+	 * The {@link ImageView}s of the slots in {@link #RENDER_MODE_VIEWS}, <code>null</code> in {@link #RENDER_MODE_CANVAS}.
+	 */
 	ImageView[] mImageViews = null;
 
-	private int mLastKnownCurrentPage = -1;
+	/**
+	 * The drawables of the slots in {@link #RENDER_MODE_CANVAS}, <code>null</code> in {@link #RENDER_MODE_VIEWS}.
+	 */
+	private Drawable[] mSlotDrawables = null;
+
+	/**
+	 * The colors and shapes of the slots if the adapter is an {@link IPrimitiveTitlePagerAdapter}.
+	 */
+	private int[] mSlotColors = null;
+	private int[] mSlotShapes = null;
+
+	/**
+	 * The size of the image part of each slot. This equals the slot size unless labels are shown.
+	 */
+	private int[] mSlotImageWidths = null;
+	private int[] mSlotImageHeights = null;
+
+	/**
+	 * The labels of the positions around the current page. A label is kept after its slot has been rebound, so scrolling back and forth doesn't measure the
+	 * same text again.
+	 */
+	private final SparseArray<Label> mLabels = new SparseArray<Label>();
+
+	/**
+	 * The label of each slot, <code>null</code> if a slot doesn't show a label.
+	 */
+	private Label[] mSlotLabels = null;
+
+	/**
+	 * Whether any slot shows a preview of an {@link IPreviewDrawableTitlePagerAdapter} that's replaced once the pager is idle.
+	 */
+	private boolean mHasPreviewSlots;
+
+	/**
+	 * Holds the ring buffer, the measured size, the position and the alpha of each slot.
+	 */
+	final StripLayoutEngine mLayoutEngine = new StripLayoutEngine();
+
+	/**
+	 * Holds the position each slot shows and decides when a slot is bound.
+	 */
+	final StripSlotBinder mSlotBinder = new StripSlotBinder(mLayoutEngine, new SlotCallback());
+
 	private float mLastKnownPositionOffset = -1;
 	private int mScaledTextSpacing;
 	private int mGravity;
 
 	private boolean mUpdatingDrawables;
-	private boolean mUpdatingPositions;
 
 	private final PageListener mPageListener = new PageListener();
 
 	private WeakReference<PagerAdapter> mWatchingAdapter;
 
-	private static final int[] ATTRS = new int[] { android.R.attr.gravity };
+	private DrawableTitleCache mDrawableCache;
+
+	/**
+	 * The current adapter if it wants to know about drawables that are no longer used, <code>null</code> otherwise.
+	 */
+	private IRecyclingDrawableTitlePagerAdapter mRecyclingAdapter;
+
+	/**
+	 * The current adapter if it provides primitive titles, <code>null</code> otherwise.
+	 */
+	private IPrimitiveTitlePagerAdapter mPrimitiveAdapter;
+
+	private int mPrimitiveTitleSize;
+	private final Paint mPrimitivePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+	private final RectF mPrimitiveRect = new RectF();
+
+	private int mLabelPosition = LABEL_NONE;
+	private int mLabelSpacing;
+	private final TextPaint mLabelPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+	private final Paint.FontMetricsInt mLabelFontMetrics = new Paint.FontMetricsInt();
+
+	private static Executor sDefaultDrawableLoadExecutor;
+
+	private Executor mDrawableLoadExecutor;
+	private final Handler mHandler = new Handler();
+
+	/**
+	 * The asynchronous loads that are in progress by position. A load that's no longer in here has been cancelled and its result is dropped.
+	 */
+	private final SparseArray<LoadRequest> mPendingLoads = new SparseArray<LoadRequest>();
+
+	private final DrawableTitlePrefetcher mPrefetcher = new DrawableTitlePrefetcher(this);
+
+	/**
+	 * The title {@link #computeSlotCount(PagerAdapter)} has fetched to measure it and its position. It's handed over to the slot that binds this position
+	 * next, so the adapter is not asked for the same title twice.
+	 */
+	private Drawable mMeasuredTitle;
+	private int mMeasuredTitlePosition = -1;
+
+	private static final int[] ATTRS = new int[] { android.R.attr.textSize, android.R.attr.textColor, android.R.attr.gravity };
 
 	private static final int TEXT_SPACING = 16; // dip
 
+	private static final int PRIMITIVE_TITLE_SIZE = 24; // dip
+
+	private static final int LABEL_SPACING = 4; // dip
+
+	private static final int LABEL_TEXT_SIZE = 12; // sp
+
+	/**
+	 * The maximum width of a title relative to the width of the strip.
+	 */
+	private static final float MAX_TITLE_WIDTH = 0.8f;
+
+	/**
+	 * The number of slots to use as long as the width of the strip is not known.
+	 */
+	private static final int DEFAULT_SLOT_COUNT = 3;
+
+	/**
+	 * The maximum number of slots, no matter how small the titles are.
+	 */
+	private static final int MAX_SLOT_COUNT = 31;
+
+	/**
+	 * The time in milliseconds after which an asynchronous load that didn't deliver a result is started again when its title is needed.
+	 */
+	private static final long LOAD_TIMEOUT = 10000;
+
+	/**
+	 * The time in seconds the thread of the default load executor is kept alive without any work to do.
+	 */
+	private static final long DEFAULT_EXECUTOR_KEEP_ALIVE = 5;
+
 
 	public DrawablePagerTitleStrip(Context context)
 	{
@@ -79,11 +242,18 @@ public class DrawablePagerTitleStrip extends ViewGroup implements ViewPager.Deco
 
 		final TypedArray a = context.obtainStyledAttributes(attrs, ATTRS);
 
-		mGravity = a.getInteger(0, Gravity.BOTTOM);
+		final float density = context.getResources().getDisplayMetrics().density;
+		final float scaledDensity = context.getResources().getDisplayMetrics().scaledDensity;
+
+		final int textSize = a.getDimensionPixelSize(0, 0);
+		mLabelPaint.setTextSize(textSize != 0 ? textSize : LABEL_TEXT_SIZE * scaledDensity);
+		mLabelPaint.setColor(a.getColor(1, 0xff000000));
+		mGravity = a.getInteger(2, Gravity.BOTTOM);
 		a.recycle();
 
-		final float density = context.getResources().getDisplayMetrics().density;
 		mScaledTextSpacing = (int) (TEXT_SPACING * density);
+		mPrimitiveTitleSize = (int) (PRIMITIVE_TITLE_SIZE * density);
+		mLabelSpacing = (int) (LABEL_SPACING * density);
 	}
 
 
@@ -122,78 +292,1457 @@ public class DrawablePagerTitleStrip extends ViewGroup implements ViewPager.Deco
 	}
 
 
+	/**
+	 * Set the size of the titles of an {@link IPrimitiveTitlePagerAdapter}. The titles are square, unless they don't fit into the strip. The default size is 24
+	 * dip.
+	 * 
+	 * @param sizePixels
+	 *            The width and height of a title in pixels.
+	 */
+	public void setPrimitiveTitleSize(int sizePixels)
+	{
+		mPrimitiveTitleSize = sizePixels;
+		requestLayout();
+	}
+
+
+	/**
+	 * @return The size of the titles of an {@link IPrimitiveTitlePagerAdapter} in pixels.
+	 */
+	public int getPrimitiveTitleSize()
+	{
+		return mPrimitiveTitleSize;
+	}
+
+
+	/**
+	 * Show the page titles of the adapter (see {@link PagerAdapter#getPageTitle(int)}) as labels next to the title drawables. The labels are considered part
+	 * of the titles, so they are reloaded whenever the titles are, i.e. when the data set changes or a title is invalidated.
+	 * 
+	 * @param labelPosition
+	 *            One of {@link #LABEL_NONE}, {@link #LABEL_BELOW} or {@link #LABEL_BESIDE}.
+	 */
+	public void setLabelPosition(int labelPosition)
+	{
+		if (labelPosition != LABEL_NONE && labelPosition != LABEL_BELOW && labelPosition != LABEL_BESIDE)
+		{
+			throw new IllegalArgumentException("Unknown label position " + labelPosition);
+		}
+
+		if (labelPosition == mLabelPosition)
+		{
+			return;
+		}
+
+		mLabelPosition = labelPosition;
+		final PagerAdapter adapter = mPager != null ? mPager.getAdapter() : null;
+		for (int i = 0, l = mSlotCount; i < l; ++i)
+		{
+			bindLabel(i, adapter);
+		}
+		requestLayout();
+		invalidate();
+	}
+
+
+	/**
+	 * @return The position of the labels, one of {@link #LABEL_NONE}, {@link #LABEL_BELOW} or {@link #LABEL_BESIDE}.
+	 */
+	public int getLabelPosition()
+	{
+		return mLabelPosition;
+	}
+
+
+	/**
+	 * Set the text size of the labels.
+	 * 
+	 * @param textSizePixels
+	 *            The text size in pixels.
+	 */
+	public void setLabelTextSize(float textSizePixels)
+	{
+		mLabelPaint.setTextSize(textSizePixels);
+
+		// the text needs to be measured again
+		mLabels.clear();
+		final PagerAdapter adapter = mPager != null ? mPager.getAdapter() : null;
+		for (int i = 0, l = mSlotCount; i < l; ++i)
+		{
+			mSlotLabels[i] = null;
+			bindLabel(i, adapter);
+		}
+		requestLayout();
+		invalidate();
+	}
+
+
+	/**
+	 * Set the text color of the labels.
+	 * 
+	 * @param color
+	 *            The color as an ARGB int.
+	 */
+	public void setLabelColor(int color)
+	{
+		mLabelPaint.setColor(color);
+		invalidate();
+	}
+
+
+	/**
+	 * Set a {@link DrawableTitleCache} to cache the title drawables of the adapter. By default the strip doesn't cache any drawables and asks the adapter for
+	 * them whenever the current page changes.
+	 * <p>
+	 * The cache is cleared whenever the adapter or its data set changes.
+	 * </p>
+	 * 
+	 * @param cache
+	 *            The {@link DrawableTitleCache} to use or <code>null</code> to disable caching.
+	 */
+	public void setDrawableCache(DrawableTitleCache cache)
+	{
+		if (mDrawableCache != null && mDrawableCache != cache)
+		{
+			mDrawableCache.evictAll();
+			mDrawableCache.setInternalEvictionListener(null);
+		}
+		mDrawableCache = cache;
+		if (cache != null)
+		{
+			cache.setInternalEvictionListener(mPageListener);
+		}
+	}
+
+
+	/**
+	 * @return The {@link DrawableTitleCache} of this strip or <code>null</code> if no cache has been set.
+	 */
+	public DrawableTitleCache getDrawableCache()
+	{
+		return mDrawableCache;
+	}
+
+
+	/**
+	 * Set the {@link Executor} that loads the title drawables of an {@link IAsyncDrawableTitlePagerAdapter}. By default all strips share a single background
+	 * thread.
+	 * 
+	 * @param executor
+	 *            The {@link Executor} to use or <code>null</code> to use the default executor.
+	 */
+	public void setDrawableLoadExecutor(Executor executor)
+	{
+		mDrawableLoadExecutor = executor;
+	}
+
+
+	/**
+	 * Set the number of titles to prefetch ahead of the visible titles while the pager is being scrolled. Prefetching happens when the UI thread is idle and
+	 * only in the direction of the scroll. The prefetched drawables are put into the {@link DrawableTitleCache}, so this has no effect unless a cache has been
+	 * set with {@link #setDrawableCache(DrawableTitleCache)}. The distance is reduced if the cache can't hold the visible and the prefetched titles. The default
+	 * is 0, which disables prefetching.
+	 * 
+	 * @param distance
+	 *            The number of titles to prefetch.
+	 */
+	public void setPrefetchDistance(int distance)
+	{
+		mPrefetcher.setDistance(distance);
+	}
+
+
+	/**
+	 * @return The number of titles to prefetch ahead of the visible titles.
+	 */
+	public int getPrefetchDistance()
+	{
+		return mPrefetcher.getDistance();
+	}
+
+
+	private Executor getDrawableLoadExecutor()
+	{
+		if (mDrawableLoadExecutor != null)
+		{
+			return mDrawableLoadExecutor;
+		}
+
+		if (sDefaultDrawableLoadExecutor == null)
+		{
+			// a single thread that terminates when it's idle, so there is nothing to shut down
+			sDefaultDrawableLoadExecutor = new ThreadPoolExecutor(0, 1, DEFAULT_EXECUTOR_KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+		}
+		return sDefaultDrawableLoadExecutor;
+	}
+
+
+	/**
+	 * Set how the titles are rendered. In {@link #RENDER_MODE_VIEWS} (the default) each title is shown in its own {@link ImageView}. In
+	 * {@link #RENDER_MODE_CANVAS} the strip has no child views and draws the title drawables directly, which saves the measure, layout and draw passes of the
+	 * child views on every scroll frame.
+	 * 
+	 * @param renderMode
+	 *            Either {@link #RENDER_MODE_VIEWS} or {@link #RENDER_MODE_CANVAS}.
+	 */
+	public void setRenderMode(int renderMode)
+	{
+		if (renderMode != RENDER_MODE_VIEWS && renderMode != RENDER_MODE_CANVAS)
+		{
+			throw new IllegalArgumentException("Unknown render mode " + renderMode);
+		}
+
+		if (renderMode == mRenderMode)
+		{
+			return;
+		}
+
+		setSlotCount(0);
+		mRenderMode = renderMode;
+
+		if (mPager != null)
+		{
+			final PagerAdapter adapter = mPager.getAdapter();
+			updateAdapter(adapter, adapter);
+		}
+		requestLayout();
+		invalidate();
+	}
+
+
+	/**
+	 * @return The current render mode, either {@link #RENDER_MODE_VIEWS} or {@link #RENDER_MODE_CANVAS}.
+	 */
+	public int getRenderMode()
+	{
+		return mRenderMode;
+	}
+
+
+	@Override
+	protected void onAttachedToWindow()
+	{
+		super.onAttachedToWindow();
+
+		final ViewParent parent = getParent();
+		if (!(parent instanceof ViewPager))
+		{
+			throw new IllegalStateException("PagerTitleStrip must be a direct child of a ViewPager.");
+		}
+
+		final ViewPager pager = (ViewPager) parent;
+		final PagerAdapter adapter = pager.getAdapter();
+
+		pager.addInternalPageChangeListener(mPageListener);
+		pager.addOnAdapterChangeListener(mPageListener);
+		mPager = pager;
+		updateAdapter(mWatchingAdapter != null ? mWatchingAdapter.get() : null, adapter);
+	}
+
+
+	@Override
+	protected void onDetachedFromWindow()
+	{
+		super.onDetachedFromWindow();
+		mPrefetcher.stop();
+		cancelPendingLoads();
+		if (mPager != null)
+		{
+			updateAdapter(mPager.getAdapter(), null);
+			mPager.removeInternalPageChangeListener(mPageListener);
+			mPager.removeOnAdapterChangeListener(mPageListener);
+			mPager = null;
+		}
+	}
+
+
+	/**
+	 * Rebind all slots to the titles around the given item. Only the title of the current item is bound right away, all other slots that show a different
+	 * title now are bound as soon as they turn out to be visible. Slots that show the same title id of an {@link IStableDrawableTitlePagerAdapter} are not
+	 * rebound.
+	 * 
+	 * @return <code>true</code> if any slot has been rebound, deferred or measured again, i.e. if the slots need to be laid out again.
+	 */
+	boolean updateImages(int currentItem, PagerAdapter adapter)
+	{
+		if (mSlotCount == 0 || !isTitleAdapter(adapter) || !canFetchTitles(adapter))
+		{
+			return false;
+		}
+
+		final boolean updatingDrawables = mUpdatingDrawables;
+		mUpdatingDrawables = true;
+		final boolean changed = mSlotBinder.update(currentItem);
+		trimLabels(currentItem);
+		mUpdatingDrawables = updatingDrawables;
+		return changed;
+	}
+
+
+	/**
+	 * Move the slots to the titles around the given item. The slots are rotated, so only the slots that enter the strip at either end need to be rebound, all
+	 * other slots keep their drawables and measurements. The entering slots are deferred, so the ones that stay outside of the strip are never bound.
+	 */
+	void shiftImages(int currentItem, PagerAdapter adapter)
+	{
+		if (mSlotCount == 0 || !isTitleAdapter(adapter) || !canFetchTitles(adapter))
+		{
+			// nothing could be bound, so don't rotate the ring either, it has to match the current page of the slot binder
+			return;
+		}
+
+		final boolean updatingDrawables = mUpdatingDrawables;
+		mUpdatingDrawables = true;
+		mSlotBinder.shift(currentItem);
+		trimLabels(currentItem);
+		mUpdatingDrawables = updatingDrawables;
+	}
+
+
+	/**
+	 * Bind and measure the slots with the logical indices from <code>first</code> (inclusive) to <code>last</code> (exclusive). If <code>keepBound</code> is
+	 * <code>true</code> bound slots that already show the right position are not rebound, even if the adapter doesn't have stable ids.
+	 * 
+	 * @return <code>true</code> if any slot has been rebound.
+	 */
+	private boolean bindSlots(int currentItem, PagerAdapter adapter, int first, int last, boolean keepBound)
+	{
+		if (mSlotCount == 0 || !isTitleAdapter(adapter) || !canFetchTitles(adapter))
+		{
+			// updateAdapter rejects adapters without titles, so this happens only without an adapter, without slots or before a sized adapter can be asked
+			return false;
+		}
+
+		final boolean updatingDrawables = mUpdatingDrawables;
+		mUpdatingDrawables = true;
+		final boolean changed = mSlotBinder.bind(currentItem, first, last, keepBound);
+		trimLabels(currentItem);
+		mUpdatingDrawables = updatingDrawables;
+		return changed;
+	}
+
+
+	/**
+	 * Returns whether the given adapter provides any kind of titles.
+	 */
+	private static boolean isTitleAdapter(PagerAdapter adapter)
+	{
+		return adapter instanceof IDrawableTitlePagerAdapter || adapter instanceof IPrimitiveTitlePagerAdapter;
+	}
+
+
+	/**
+	 * Replace the previews shown by any slot by the actual title drawables. If the adapter is an {@link IAsyncDrawableTitlePagerAdapter} the previews are kept
+	 * until the actual drawables have been loaded.
+	 * 
+	 * @return <code>true</code> if any slot has been changed.
+	 */
+	private boolean upgradePreviewSlots()
+	{
+		if (!mHasPreviewSlots || mPager == null || !(mPager.getAdapter() instanceof IDrawableTitlePagerAdapter))
+		{
+			return false;
+		}
+		mHasPreviewSlots = false;
+
+		final IDrawableTitlePagerAdapter adapter = (IDrawableTitlePagerAdapter) mPager.getAdapter();
+		final int maxWidth = getMaxTitleWidth();
+		final int maxHeight = getMaxSlotHeight();
+		boolean changed = false;
+		mUpdatingDrawables = true;
+		for (int i = 0, l = mSlotCount; i < l; ++i)
+		{
+			final int position = mSlotBinder.getPosition(i);
+			if (!mSlotBinder.isPreview(i) || position < 0 || mSlotBinder.isDeferred(i))
+			{
+				// deferred slots are rebound anyway
+				continue;
+			}
+
+			if (adapter instanceof IAsyncDrawableTitlePagerAdapter && (mDrawableCache == null || !mDrawableCache.contains(position)))
+			{
+				// the preview is a better placeholder than the one of the adapter, keep it until the drawable has been loaded
+				loadDrawableTitle((IAsyncDrawableTitlePagerAdapter) adapter, position);
+				mSlotBinder.setBound(i, false);
+				continue;
+			}
+
+			setSlotDrawable(i, getDrawableTitle(adapter, position));
+			measureSlot(i, maxWidth, maxHeight);
+			changed = true;
+		}
+		mUpdatingDrawables = false;
+		return changed;
+	}
+
+
+	/**
+	 * Returns the title drawable for the given position, either from the cache or from the adapter. If the adapter is an
+	 * {@link IAsyncDrawableTitlePagerAdapter} this returns the placeholder and starts loading the actual drawable.
+	 */
+	Drawable getDrawableTitle(IDrawableTitlePagerAdapter adapter, int position)
+	{
+		if (mMeasuredTitle != null && position == mMeasuredTitlePosition)
+		{
+			final Drawable measured = mMeasuredTitle;
+			mMeasuredTitle = null;
+			mMeasuredTitlePosition = -1;
+			return measured;
+		}
+
+		final DrawableTitleCache cache = mDrawableCache;
+		Drawable result = cache != null ? cache.get(position) : null;
+		if (result != null)
+		{
+			return result;
+		}
+
+		result = fetchDrawableTitle(adapter, position);
+		if (adapter instanceof IAsyncDrawableTitlePagerAdapter)
+		{
+			// result is just a placeholder, don't cache it
+			loadDrawableTitle((IAsyncDrawableTitlePagerAdapter) adapter, position);
+		}
+		else if (cache != null && result != null)
+		{
+			cache.put(position, result);
+		}
+		return result;
+	}
+
+
+	/**
+	 * Ask the adapter for the drawable of the given position, passing the size of the title slots if the adapter supports it. An
+	 * {@link ISizedDrawableTitlePagerAdapter} is not asked before the strip has a size, see {@link #canFetchTitles(PagerAdapter)}.
+	 */
+	private Drawable fetchDrawableTitle(IDrawableTitlePagerAdapter adapter, int position)
+	{
+		if (adapter instanceof ISizedDrawableTitlePagerAdapter)
+		{
+			final int maxWidth = getMaxTitleWidth();
+			final int maxHeight = getMaxTitleHeight();
+			if (maxWidth <= 0 || maxHeight <= 0)
+			{
+				// a drawable of the wrong size would only be replaced in onSizeChanged
+				return null;
+			}
+			return ((ISizedDrawableTitlePagerAdapter) adapter).getDrawableTitle(position, maxWidth, maxHeight);
+		}
+		return adapter.getDrawableTitle(position);
+	}
+
+
+	/**
+	 * Returns whether the titles of the given adapter can be fetched. An {@link ISizedDrawableTitlePagerAdapter} needs the size of the titles, so its titles
+	 * are not fetched before the strip has been laid out. {@link #onSizeChanged(int, int, int, int)} binds them once the size is known.
+	 */
+	private boolean canFetchTitles(PagerAdapter adapter)
+	{
+		return !(adapter instanceof ISizedDrawableTitlePagerAdapter) || getMaxTitleWidth() > 0 && getMaxTitleHeight() > 0;
+	}
+
+
+	/**
+	 * Returns the maximum width of a title in pixels.
+	 */
+	int getMaxTitleWidth()
+	{
+		return (int) ((getWidth() - getPaddingLeft() - getPaddingRight()) * MAX_TITLE_WIDTH);
+	}
+
+
+	/**
+	 * Returns the maximum height of a title drawable in pixels. If labels are shown below the titles this leaves room for one line of text.
+	 */
+	int getMaxTitleHeight()
+	{
+		final int height = getMaxSlotHeight();
+		if (mLabelPosition != LABEL_BELOW)
+		{
+			return height;
+		}
+
+		// like measureSlot, assuming a label of a single line
+		final Paint.FontMetricsInt metrics = mLabelFontMetrics;
+		mLabelPaint.getFontMetricsInt(metrics);
+		return Math.max(0, height - (metrics.descent - metrics.ascent) - mLabelSpacing);
+	}
+
+
+	/**
+	 * Returns the maximum height of a slot, i.e. of a title and its label, in pixels.
+	 */
+	private int getMaxSlotHeight()
+	{
+		return getHeight() - getPaddingTop() - getPaddingBottom();
+	}
+
+
+	/**
+	 * Put the drawable of the given position into the cache (or start loading it), unless it's already there.
+	 */
+	void prefetchDrawableTitle(int position)
+	{
+		final DrawableTitleCache cache = mDrawableCache;
+		final PagerAdapter adapter = mPager != null ? mPager.getAdapter() : null;
+		if (cache == null || !(adapter instanceof IDrawableTitlePagerAdapter) || position < 0 || position >= adapter.getCount() || cache.contains(position)
+			|| !canFetchTitles(adapter))
+		{
+			return;
+		}
+
+		if (adapter instanceof IAsyncDrawableTitlePagerAdapter)
+		{
+			loadDrawableTitle((IAsyncDrawableTitlePagerAdapter) adapter, position);
+		}
+		else
+		{
+			final Drawable drawable = fetchDrawableTitle((IDrawableTitlePagerAdapter) adapter, position);
+			if (drawable != null)
+			{
+				cache.put(position, drawable);
+				// the cache doesn't take drawables that are larger than the whole cache, no slot shows it yet
+				releaseDrawableTitle(position, drawable);
+			}
+		}
+	}
+
+
+	/**
+	 * Start loading the drawable of the given position on the load executor, unless it's already being loaded. A load that didn't deliver a result within
+	 * {@link #LOAD_TIMEOUT} is started again.
+	 */
+	private void loadDrawableTitle(IAsyncDrawableTitlePagerAdapter adapter, int position)
+	{
+		final LoadRequest pending = mPendingLoads.get(position);
+		if (pending != null)
+		{
+			if (SystemClock.uptimeMillis() - pending.mStartTime < LOAD_TIMEOUT)
+			{
+				return;
+			}
+			// the adapter seems to have lost this one
+			pending.mCancelled = true;
+		}
+
+		final LoadRequest request = new LoadRequest(this, adapter, position);
+		mPendingLoads.put(position, request);
+		getDrawableLoadExecutor().execute(request);
+	}
+
+
+	/**
+	 * Called on the UI thread when an asynchronous load has been completed. Applies the drawable if its slot still shows the same position.
+	 */
+	private void applyLoadedDrawableTitle(LoadRequest request, Drawable drawable)
+	{
+		final int position = request.mPosition;
+		if (mPendingLoads.get(position) != request)
+		{
+			// the load has been cancelled in the meantime, because the title has been invalidated or the adapter or its data has changed
+			if (drawable != null)
+			{
+				if (request.mAdapter == mRecyclingAdapter)
+				{
+					releaseDrawableTitle(position, drawable);
+				}
+				else if (request.mAdapter instanceof IRecyclingDrawableTitlePagerAdapter)
+				{
+					((IRecyclingDrawableTitlePagerAdapter) request.mAdapter).releaseDrawableTitle(position, drawable);
+				}
+			}
+			return;
+		}
+		mPendingLoads.delete(position);
+
+		if (drawable == null)
+		{
+			return;
+		}
+
+		boolean shown = false;
+		if (mSlotCount > 0 && mPager != null)
+		{
+			for (int i = 0, l = mSlotCount; i < l; ++i)
+			{
+				if (mSlotBinder.getPosition(i) == position && !mSlotBinder.isDeferred(i))
+				{
+					// this releases the placeholder, so do it before the drawable is put into the cache
+					mUpdatingDrawables = true;
+					setSlotDrawable(i, drawable);
+					mSlotBinder.setBound(i, true);
+					measureSlot(i, getMaxTitleWidth(), getMaxSlotHeight());
+					mUpdatingDrawables = false;
+					shown = true;
+					break;
+				}
+			}
+		}
+
+		if (mDrawableCache != null)
+		{
+			mDrawableCache.put(position, drawable);
+		}
+
+		if (shown)
+		{
+			final float offset = mLastKnownPositionOffset >= 0 ? mLastKnownPositionOffset : 0;
+			updateDrawablePositions(mSlotBinder.getCurrentPage(), offset, true);
+		}
+		else
+		{
+			// the position has been scrolled out of the strip in the meantime, release the drawable unless it's been cached
+			releaseDrawableTitle(position, drawable);
+		}
+	}
+
+
+	/**
+	 * Drop the results of all pending asynchronous loads. Loads that have not been started yet are skipped.
+	 */
+	private void cancelPendingLoads()
+	{
+		for (int i = 0, l = mPendingLoads.size(); i < l; ++i)
+		{
+			mPendingLoads.valueAt(i).mCancelled = true;
+		}
+		mPendingLoads.clear();
+	}
+
+
+	/**
+	 * Returns the index of the slot that shows the title at the given logical index. Logical index 0 is the left most title, <code>mSlotCount / 2</code> is
+	 * the title of the current page.
+	 */
+	final int slotIndex(int logicalIndex)
+	{
+		return mLayoutEngine.slotIndex(logicalIndex);
+	}
+
+
+	/**
+	 * Invalidate the title of a single position. This drops the cached drawable of this position and rebinds the slot showing it (if any). Call this if the
+	 * title of a position has changed but nothing else, so there is no need to call {@link PagerAdapter#notifyDataSetChanged()}.
+	 * 
+	 * @param position
+	 *            The position of the title that has changed.
+	 */
+	public void invalidateDrawableTitle(int position)
+	{
+		invalidateDrawableTitles(position, 1);
+	}
+
+
+	/**
+	 * Invalidate the titles of a range of positions. This drops the cached drawables of these positions and rebinds the slots showing them. Call this if the
+	 * titles of these positions have changed but nothing else, so there is no need to call {@link PagerAdapter#notifyDataSetChanged()}.
+	 * 
+	 * @param positionStart
+	 *            The first position of the titles that have changed.
+	 * @param itemCount
+	 *            The number of titles that have changed.
+	 */
+	public void invalidateDrawableTitles(int positionStart, int itemCount)
+	{
+		if (itemCount <= 0)
+		{
+			return;
+		}
+
+		final int positionEnd = positionStart + itemCount;
+
+		if (mDrawableCache != null)
+		{
+			mDrawableCache.removeRange(positionStart, itemCount);
+		}
+
+		// cancel pending loads, so their results are not applied and the titles are loaded again
+		for (int i = mPendingLoads.size() - 1; i >= 0; --i)
+		{
+			final int position = mPendingLoads.keyAt(i);
+			if (position >= positionStart && position < positionEnd)
+			{
+				mPendingLoads.valueAt(i).mCancelled = true;
+				// SparseArray.removeAt needs API level 11
+				mPendingLoads.delete(position);
+			}
+		}
+
+		// drop the labels, so they are loaded again, the slots keep theirs, so they can be reused if the text didn't change
+		for (int i = mLabels.size() - 1; i >= 0; --i)
+		{
+			final int position = mLabels.keyAt(i);
+			if (position >= positionStart && position < positionEnd)
+			{
+				mLabels.delete(position);
+			}
+		}
+
+		if (mPager == null)
+		{
+			return;
+		}
+
+		final PagerAdapter adapter = mPager.getAdapter();
+		boolean changed = false;
+		for (int i = 0, l = mSlotCount; i < l; ++i)
+		{
+			final int slot = slotIndex(i);
+			final int position = mSlotBinder.getPosition(slot);
+			if (position >= positionStart && position < positionEnd)
+			{
+				mSlotBinder.setBound(slot, false);
+				// deferred slots are rebound once they become visible
+				if (!mSlotBinder.isDeferred(slot))
+				{
+					changed |= bindSlots(mSlotBinder.getCurrentPage(), adapter, i, i + 1, true);
+				}
+			}
+		}
+
+		if (changed)
+		{
+			final float offset = mLastKnownPositionOffset >= 0 ? mLastKnownPositionOffset : 0;
+			updateDrawablePositions(mSlotBinder.getCurrentPage(), offset, true);
+			// the new titles might be narrower or wider than the old ones
+			if (updateSlotCount(adapter))
+			{
+				updateDrawablePositions(mSlotBinder.getCurrentPage(), offset, true);
+			}
+		}
+	}
+
+
+	/**
+	 * Set the drawable of the given slot. The previous drawable is released if it's no longer used, so call this before updating the position of the slot.
+	 */
+	private void setSlotDrawable(int slot, Drawable drawable)
+	{
+		final Drawable previous;
+		if (mImageViews != null)
+		{
+			final ImageView iv = mImageViews[slot];
+			previous = iv.getDrawable();
+			iv.setImageDrawable(drawable);
+		}
+		else if (mSlotDrawables != null)
+		{
+			previous = mSlotDrawables[slot];
+			mSlotDrawables[slot] = drawable;
+			if (drawable != null)
+			{
+				// let animated drawables invalidate the strip
+				drawable.setCallback(this);
+			}
+			if (previous != null && previous != drawable && !isSlotDrawable(previous))
+			{
+				previous.setCallback(null);
+			}
+		}
+		else
+		{
+			// primitive titles
+			return;
+		}
+
+		if (previous != null && previous != drawable)
+		{
+			if (mSlotBinder.isPreview(slot))
+			{
+				// previews are never cached, so release them even if the actual title is in the cache
+				if (mRecyclingAdapter != null && mSlotBinder.getPosition(slot) >= 0 && !isSlotDrawable(previous))
+				{
+					mRecyclingAdapter.releaseDrawableTitle(mSlotBinder.getPosition(slot), previous);
+				}
+			}
+			else
+			{
+				releaseDrawableTitle(mSlotBinder.getPosition(slot), previous);
+			}
+		}
+		mSlotBinder.setPreview(slot, false);
+	}
+
+
+	/**
+	 * Pass a drawable that has been dropped from a slot back to an {@link IRecyclingDrawableTitlePagerAdapter}, unless it's still shown by another slot or held
+	 * by the cache.
+	 */
+	private void releaseDrawableTitle(int position, Drawable drawable)
+	{
+		if (mRecyclingAdapter == null || position < 0 || mDrawableCache != null && mDrawableCache.holds(position, drawable) || isSlotDrawable(drawable))
+		{
+			return;
+		}
+		mRecyclingAdapter.releaseDrawableTitle(position, drawable);
+	}
+
+
+	/**
+	 * Returns whether any slot shows the given drawable.
+	 */
+	private boolean isSlotDrawable(Drawable drawable)
+	{
+		if (mImageViews == null && mSlotDrawables == null)
+		{
+			return false;
+		}
+
+		for (int i = 0, l = mSlotCount; i < l; ++i)
+		{
+			if ((mImageViews != null ? mImageViews[i].getDrawable() : mSlotDrawables[i]) == drawable)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Bind the label of the given slot to the position the slot shows. Labels of positions that are not in {@link #mLabels} are loaded from the adapter and
+	 * measured right away, but their layouts are created by {@link #measureSlot(int, int, int)}.
+	 * 
+	 * @return <code>true</code> if the slot shows a different label now.
+	 */
+	private boolean bindLabel(int slot, PagerAdapter adapter)
+	{
+		final int position = mSlotBinder.getPosition(slot);
+		final Label previous = mSlotLabels[slot];
+		Label label = null;
+		if (mLabelPosition != LABEL_NONE && adapter != null && position >= 0)
+		{
+			label = mLabels.get(position);
+			if (label == null)
+			{
+				final CharSequence text = adapter.getPageTitle(position);
+				// keep the label of the slot if the title didn't change, so it doesn't have to be measured again
+				label = previous != null && TextUtils.equals(previous.mText, text) ? previous : new Label(text, mLabelPaint);
+				mLabels.put(position, label);
+			}
+		}
+		mSlotLabels[slot] = label;
+		return label != previous;
+	}
+
+
+	/**
+	 * Drop the labels of all positions the slots can't reach from the given item.
+	 */
+	private void trimLabels(int currentItem)
+	{
+		final SparseArray<Label> labels = mLabels;
+		final int first = currentItem - mSlotCount;
+		final int last = currentItem + mSlotCount;
+		// SparseArray.removeAt needs API level 11
+		while (labels.size() > 0 && labels.keyAt(0) < first)
+		{
+			labels.delete(labels.keyAt(0));
+		}
+		while (labels.size() > 0 && labels.keyAt(labels.size() - 1) > last)
+		{
+			labels.delete(labels.keyAt(labels.size() - 1));
+		}
+	}
+
+
+	/**
+	 * Returns the text layout of the label of the given slot for the given maximum width. The layout is reused as long as the width doesn't change.
+	 */
+	private Layout getLabelLayout(int slot, int maxWidth)
+	{
+		final Label label = mSlotLabels[slot];
+		if (label == null || label.mText == null || maxWidth <= 0)
+		{
+			return null;
+		}
+
+		final int width = Math.min((int) Math.ceil(label.mDesiredWidth), maxWidth);
+		Layout layout = label.mLayout;
+		if (layout == null || layout.getWidth() != width)
+		{
+			layout = label.mLayout = new StaticLayout(label.mText, mLabelPaint, width, Layout.Alignment.ALIGN_CENTER, 1f, 0f, false);
+		}
+		return layout;
+	}
+
+
+	/**
+	 * Measure the given slot. In {@link #RENDER_MODE_CANVAS} this mimics what a wrap_content {@link ImageView} would do. If labels are shown the slot is large
+	 * enough to hold the image and the label.
+	 */
+	private void measureSlot(int slot, int maxWidth, int maxHeight)
+	{
+		// below the image the label can take the full width and reduces the height of the image
+		Layout label = mLabelPosition == LABEL_BELOW ? getLabelLayout(slot, maxWidth) : null;
+		final int maxImageHeight = label == null ? maxHeight : Math.max(0, maxHeight - label.getHeight() - mLabelSpacing);
+
+		final int imageWidth;
+		final int imageHeight;
+		final int baseline;
+		if (mImageViews != null)
+		{
+			final ImageView iv = mImageViews[slot];
+			iv.measure(MeasureSpec.makeMeasureSpec(maxWidth, MeasureSpec.AT_MOST), MeasureSpec.makeMeasureSpec(maxImageHeight, MeasureSpec.AT_MOST));
+			imageWidth = iv.getMeasuredWidth();
+			imageHeight = iv.getMeasuredHeight();
+			baseline = iv.getBaseline();
+		}
+		else if (mSlotDrawables == null)
+		{
+			// a primitive title
+			final int size = mSlotBinder.getPosition(slot) < 0 ? 0 : mPrimitiveTitleSize;
+			imageWidth = Math.max(0, Math.min(size, maxWidth));
+			imageHeight = Math.max(0, Math.min(size, maxImageHeight));
+			baseline = -1;
+		}
+		else
+		{
+			final Drawable drawable = mSlotDrawables[slot];
+			imageWidth = drawable == null ? 0 : Math.max(0, Math.min(drawable.getIntrinsicWidth(), maxWidth));
+			imageHeight = drawable == null ? 0 : Math.max(0, Math.min(drawable.getIntrinsicHeight(), maxImageHeight));
+			baseline = -1; // like ImageView
+		}
+		mSlotImageWidths[slot] = imageWidth;
+		mSlotImageHeights[slot] = imageHeight;
+
+		if (mLabelPosition == LABEL_BESIDE)
+		{
+			// beside the image the label takes the remaining width
+			label = getLabelLayout(slot, maxWidth - imageWidth - mLabelSpacing);
+		}
+
+		if (label == null)
+		{
+			mLayoutEngine.setSlotSize(slot, imageWidth, imageHeight, baseline);
+		}
+		else if (mLabelPosition == LABEL_BELOW)
+		{
+			mLayoutEngine.setSlotSize(slot, Math.max(imageWidth, label.getWidth()), imageHeight + mLabelSpacing + label.getHeight(), -1);
+		}
+		else
+		{
+			mLayoutEngine.setSlotSize(slot, imageWidth + mLabelSpacing + label.getWidth(), Math.max(imageHeight, label.getHeight()), -1);
+		}
+	}
+
+
+	/**
+	 * Returns the left edge of the image part of the given slot. The image is centered above a label or at the left edge of the slot if the label is beside
+	 * it.
+	 */
+	private int getImageLeft(int slot)
+	{
+		final StripLayoutEngine engine = mLayoutEngine;
+		if (mLabelPosition == LABEL_BESIDE)
+		{
+			return engine.getLeft(slot);
+		}
+		return engine.getLeft(slot) + (engine.getWidth(slot) - mSlotImageWidths[slot]) / 2;
+	}
+
+
+	/**
+	 * Returns the top edge of the image part of the given slot. The image is at the top of the slot or vertically centered if the label is beside it.
+	 */
+	private int getImageTop(int slot)
+	{
+		final StripLayoutEngine engine = mLayoutEngine;
+		if (mLabelPosition == LABEL_BESIDE)
+		{
+			return engine.getTop(slot) + (engine.getHeight(slot) - mSlotImageHeights[slot]) / 2;
+		}
+		return engine.getTop(slot);
+	}
+
+
+	/**
+	 * Move the {@link ImageView} of the given slot to the position computed by the {@link StripLayoutEngine}.
+	 */
+	@SuppressLint("NewApi")
+	private void layoutSlotView(int slot)
+	{
+		final StripLayoutEngine engine = mLayoutEngine;
+		final int left = engine.getLeft(slot);
+		final int right = engine.getRight(slot);
+		final float alpha = engine.getAlpha(slot);
+
+		final int imageLeft = getImageLeft(slot);
+		final int imageTop = getImageTop(slot);
+		final ImageView iv = mImageViews[slot];
+		iv.layout(imageLeft, imageTop, imageLeft + mSlotImageWidths[slot], imageTop + mSlotImageHeights[slot]);
+
+		// don't draw slots that are outside of the strip
+		final int visibility = right <= 0 || left >= getWidth() || alpha == 0f ? INVISIBLE : VISIBLE;
+		if (iv.getVisibility() != visibility)
+		{
+			iv.setVisibility(visibility);
+		}
+
+		if (VERSION.SDK_INT >= 14)
+		{
+			iv.setAlpha(alpha);
+		}
+	}
+
+
+	/**
+	 * Returns the number of slots that's required to fill the width of the strip with titles, assuming no title is narrower than the narrowest title that's
+	 * currently bound. The slots also cover the titles that scroll into the strip while the pager is being dragged. Slots that stay outside of the strip are
+	 * never bound, so a few spare slots are cheap. There are never more slots than required to show all titles of the adapter.
+	 */
+	private int computeSlotCount(PagerAdapter adapter)
+	{
+		final int itemCount = adapter.getCount();
+		final int maxSlotCount = Math.max(1, Math.min(MAX_SLOT_COUNT, 2 * itemCount - 1));
+		final int stripWidth = getWidth();
+
+		if (stripWidth <= 0 || itemCount == 0 || mPager == null || !canFetchTitles(adapter))
+		{
+			// don't probe the titles of a sized adapter before the size is known, onSizeChanged computes the slot count again
+			return Math.min(DEFAULT_SLOT_COUNT, maxSlotCount);
+		}
+
+		// the measured slots include the labels, if any
+		int titleWidth = 0;
+		for (int i = 0, l = mSlotCount; i < l; ++i)
+		{
+			final int width = mLayoutEngine.getWidth(i);
+			if (!mSlotBinder.isDeferred(i) && mSlotBinder.getPosition(i) >= 0 && width > 0 && (titleWidth == 0 || width < titleWidth))
+			{
+				titleWidth = width;
+			}
+		}
+
+		if (titleWidth == 0)
+		{
+			// nothing has been measured yet, use the title of the current page
+			final int current = mPager.getCurrentItem();
+			if (adapter instanceof IDrawableTitlePagerAdapter)
+			{
+				if (current >= 0 && current < itemCount)
+				{
+					final Drawable title = getDrawableTitle((IDrawableTitlePagerAdapter) adapter, current);
+					if (title != null)
+					{
+						titleWidth = Math.min(title.getIntrinsicWidth(), getMaxTitleWidth());
+						// the title is not shown by any slot yet, keep it for the slot that binds it, see releaseMeasuredTitle()
+						mMeasuredTitle = title;
+						mMeasuredTitlePosition = current;
+					}
+				}
+			}
+			else
+			{
+				titleWidth = Math.min(mPrimitiveTitleSize, getMaxTitleWidth());
+			}
+		}
+
+		if (titleWidth <= 0)
+		{
+			// no idea how wide a title is
+			return mSlotCount > 0 ? Math.min(mSlotCount, maxSlotCount) : Math.min(DEFAULT_SLOT_COUNT, maxSlotCount);
+		}
+
+		// the number of titles on either side of the center title, plus one that scrolls in while dragging
+		final int pitch = titleWidth + mScaledTextSpacing;
+		final int sideCount = (stripWidth / 2 + pitch - 1) / pitch + 1;
+		return Math.min(2 * sideCount + 1, maxSlotCount);
+	}
+
+
+	/**
+	 * Compute the number of slots again from the titles that are bound right now and rebind the slots if it has changed. Call this after the slots have been
+	 * laid out, since only the visible slots are bound and measured.
+	 * 
+	 * @return <code>true</code> if the number of slots has changed, i.e. if the slots need to be laid out again.
+	 */
+	private boolean updateSlotCount(PagerAdapter adapter)
+	{
+		if (adapter == null)
+		{
+			return false;
+		}
+
+		final int slotCount = computeSlotCount(adapter);
+		if (slotCount == mSlotCount)
+		{
+			releaseMeasuredTitle();
+			return false;
+		}
+
+		final int page = getBoundPage();
+		setSlotCount(slotCount);
+		updateImages(page, adapter);
+		releaseMeasuredTitle();
+		// setSlotCount doesn't request a layout for the views it adds or removes
+		requestLayout();
+		return true;
+	}
+
+
+	/**
+	 * Returns the page the slots are bound around. While the pager is being dragged that's the left page of the scroll position, which is not necessarily
+	 * the current item of the pager.
+	 */
+	private int getBoundPage()
+	{
+		final int page = mSlotBinder.getCurrentPage();
+		return page >= 0 ? page : mPager.getCurrentItem();
+	}
+
+
+	/**
+	 * Release the title {@link #computeSlotCount(PagerAdapter)} has measured, unless a slot has taken it. Call this after the slots have been bound.
+	 */
+	private void releaseMeasuredTitle()
+	{
+		if (mMeasuredTitle != null)
+		{
+			final Drawable title = mMeasuredTitle;
+			mMeasuredTitle = null;
+			releaseDrawableTitle(mMeasuredTitlePosition, title);
+			mMeasuredTitlePosition = -1;
+		}
+	}
+
+
+	/**
+	 * Change the number of title slots. This drops the drawables of all slots.
+	 */
+	private void setSlotCount(int count)
+	{
+		// drop the drawables of the current slots, so they can be released
+		final boolean updatingDrawables = mUpdatingDrawables;
+		mUpdatingDrawables = true;
+		for (int i = 0, l = mSlotCount; i < l; ++i)
+		{
+			setSlotDrawable(i, null);
+			mSlotLabels[i] = null;
+		}
+		mUpdatingDrawables = updatingDrawables;
+
+		if (mRenderMode == RENDER_MODE_VIEWS && mPrimitiveAdapter == null)
+		{
+			final int oldCount = mImageViews == null ? 0 : mImageViews.length;
+			if (oldCount != count)
+			{
+				ImageView[] newImages = count == 0 ? null : new ImageView[count];
+				if (newImages != null && mImageViews != null)
+				{
+					System.arraycopy(mImageViews, 0, newImages, 0, Math.min(oldCount, count));
+				}
+
+				// this might be called during layout, so don't request another one, our callers take care of that
+				for (int i = count; i < oldCount; ++i)
+				{
+					removeViewInLayout(mImageViews[i]);
+				}
+
+				final Context context = getContext();
+				for (int i = oldCount; i < count; ++i)
+				{
+					addViewInLayout(newImages[i] = new ImageView(context), -1, generateDefaultLayoutParams());
+					onSlotViewCreated(i, newImages[i]);
+				}
+				mImageViews = newImages;
+			}
+			mSlotDrawables = null;
+		}
+		else
+		{
+			if (mImageViews != null)
+			{
+				for (ImageView view : mImageViews)
+				{
+					removeViewInLayout(view);
+				}
+				mImageViews = null;
+			}
+			// primitive titles don't have any drawables
+			mSlotDrawables = count == 0 || mPrimitiveAdapter != null ? null : new Drawable[count];
+		}
+
+		mSlotBinder.setSlotCount(count);
+
+		if (count != mSlotCount)
+		{
+			mSlotColors = new int[count];
+			mSlotShapes = new int[count];
+			mSlotImageWidths = new int[count];
+			mSlotImageHeights = new int[count];
+			mSlotLabels = new Label[count];
+			mSlotCount = count;
+		}
+	}
+
+
+	/**
+	 * Called whenever the pager has been scrolled. By default the titles follow the pager. Subclasses can override this to scroll the titles independently.
+	 * 
+	 * @param position
+	 *            The position of the first visible page.
+	 * @param positionOffset
+	 *            The offset of the first visible page.
+	 */
+	void onPagerScrolled(int position, float positionOffset)
+	{
+		scrollTitlesTo(position, positionOffset);
+	}
+
+
+	/**
+	 * Scroll the titles, so the title of the given position is centered and moved to the left by the given offset. Only the slots that scroll into the strip
+	 * are bound, so this is cheap no matter how far the titles are moved.
+	 * 
+	 * @param position
+	 *            The position of the current title.
+	 * @param positionOffset
+	 *            How far the title of the current page has been moved to the left, in pages.
+	 */
+	void scrollTitlesTo(int position, float positionOffset)
+	{
+		// the title of the left page stays the current one until the titles reach the next page, so the slots are rotated at page boundaries only
+		updateDrawablePositions(position, positionOffset, false);
+
+		if (mSlotCount > 0)
+		{
+			final int half = mSlotCount / 2;
+			mPrefetcher.onPageScrolled(position, positionOffset, mSlotBinder.getCurrentPage() - half, mSlotBinder.getCurrentPage() + half);
+		}
+	}
+
+
+	/**
+	 * Returns the current scroll position of the titles in pages. This is the scroll position of the pager, unless the titles are scrolled independently.
+	 */
+	float getScrollPosition()
+	{
+		return mSlotBinder.getCurrentPage() + (mLastKnownPositionOffset >= 0 ? mLastKnownPositionOffset : 0);
+	}
+
+
+	/**
+	 * Called after the slots have been moved to their new positions.
+	 * 
+	 * @param positionOffset
+	 *            How far the title of the current page has been moved to the left, in pages.
+	 */
+	void onSlotsLaidOut(float positionOffset)
+	{
+		// nothing to do by default
+	}
+
+
+	/**
+	 * Called when the adapter has changed its data set, after the cached titles have been dropped and before the slots are bound again. Subclasses that
+	 * scroll the titles independently can override this to let the titles follow the pager again.
+	 */
+	void onDataSetChanged()
+	{
+		// nothing to do by default
+	}
+
+
+	/**
+	 * Called whenever a new slot view has been created in {@link #RENDER_MODE_VIEWS}.
+	 * 
+	 * @param slot
+	 *            The index of the slot.
+	 * @param view
+	 *            The new {@link ImageView}.
+	 */
+	void onSlotViewCreated(int slot, ImageView view)
+	{
+		// nothing to do by default
+	}
+
+
 	@Override
-	protected void onAttachedToWindow()
+	protected void dispatchDraw(Canvas canvas)
 	{
-		super.onAttachedToWindow();
+		super.dispatchDraw(canvas);
 
-		final ViewParent parent = getParent();
-		if (!(parent instanceof ViewPager))
+		if (mPrimitiveAdapter != null)
 		{
-			throw new IllegalStateException("PagerTitleStrip must be a direct child of a ViewPager.");
+			drawPrimitiveTitles(canvas);
+		}
+		else if (mSlotDrawables != null)
+		{
+			drawDrawableTitles(canvas);
 		}
 
-		final ViewPager pager = (ViewPager) parent;
-		final PagerAdapter adapter = pager.getAdapter();
-
-		pager.setInternalPageChangeListener(mPageListener);
-		pager.setOnAdapterChangeListener(mPageListener);
-		mPager = pager;
-		updateAdapter(mWatchingAdapter != null ? mWatchingAdapter.get() : null, adapter);
+		if (mLabelPosition != LABEL_NONE)
+		{
+			drawLabels(canvas);
+		}
 	}
 
 
-	@Override
-	protected void onDetachedFromWindow()
+	/**
+	 * Draw the title drawables in {@link #RENDER_MODE_CANVAS}.
+	 */
+	private void drawDrawableTitles(Canvas canvas)
 	{
-		super.onDetachedFromWindow();
-		if (mPager != null)
+		final Drawable[] drawables = mSlotDrawables;
+		final StripLayoutEngine engine = mLayoutEngine;
+		for (int i = 0, l = mSlotCount; i < l; ++i)
 		{
-			updateAdapter(mPager.getAdapter(), null);
-			mPager.setInternalPageChangeListener(null);
-			mPager.setOnAdapterChangeListener(null);
-			mPager = null;
+			final Drawable drawable = drawables[i];
+			final float alpha = engine.getAlpha(i);
+			final int width = mSlotImageWidths[i];
+			final int height = mSlotImageHeights[i];
+			if (drawable == null || alpha <= 0 || width == 0 || height == 0)
+			{
+				continue;
+			}
+
+			// scale the drawable to fit into the slot, like ImageView.ScaleType.FIT_CENTER does
+			int drawableWidth = width;
+			int drawableHeight = height;
+			final int intrinsicWidth = drawable.getIntrinsicWidth();
+			final int intrinsicHeight = drawable.getIntrinsicHeight();
+			if (intrinsicWidth > 0 && intrinsicHeight > 0)
+			{
+				final float scale = Math.min((float) width / intrinsicWidth, (float) height / intrinsicHeight);
+				drawableWidth = (int) (intrinsicWidth * scale + 0.5f);
+				drawableHeight = (int) (intrinsicHeight * scale + 0.5f);
+			}
+
+			final int left = getImageLeft(i) + (width - drawableWidth) / 2;
+			final int top = getImageTop(i) + (height - drawableHeight) / 2;
+			drawable.setBounds(left, top, left + drawableWidth, top + drawableHeight);
+			if (alpha >= 1f)
+			{
+				drawable.draw(canvas);
+			}
+			else
+			{
+				drawFaded(canvas, drawable, alpha);
+			}
 		}
 	}
 
 
-	void updateImages(int currentItem, PagerAdapter adapter)
+	/**
+	 * Draw a drawable with the given alpha. The drawable may be shared or cached, so the alpha it's been given by the adapter is preserved.
+	 */
+	@SuppressLint("NewApi")
+	private void drawFaded(Canvas canvas, Drawable drawable, float alpha)
 	{
-		if (mImageViews == null || mImageViews.length == 0 || !(adapter instanceof IDrawableTitlePagerAdapter))
+		if (VERSION.SDK_INT >= 19)
 		{
-			// better throw an exception?
-			return;
+			final int previousAlpha = drawable.getAlpha();
+			drawable.setAlpha((int) (previousAlpha * alpha + 0.5f));
+			drawable.draw(canvas);
+			drawable.setAlpha(previousAlpha);
 		}
-		IDrawableTitlePagerAdapter dAdapter = (IDrawableTitlePagerAdapter) adapter;
-
-		final int itemCount = adapter != null ? adapter.getCount() : 0;
-		mUpdatingDrawables = true;
-		int half = mImageViews.length / 2;
-		for (int i = 0, l = mImageViews.length; i < l; ++i)
+		else
 		{
-			mImageViews[i].setImageDrawable(adapter != null && currentItem + (i - half) >= 0 && currentItem + (i - half) < itemCount ? dAdapter
-				.getDrawableTitle(currentItem + (i - half)) : null);
+			// there is no way to get the current alpha of the drawable, so fade it in a layer, this is only done for the titles at the edges
+			final Rect bounds = drawable.getBounds();
+			final int saveCount = canvas.saveLayerAlpha(bounds.left, bounds.top, bounds.right, bounds.bottom, (int) (alpha * 255 + 0.5f),
+				Canvas.ALL_SAVE_FLAG);
+			drawable.draw(canvas);
+			canvas.restoreToCount(saveCount);
 		}
+	}
 
-		// Measure everything
-		final int width = getWidth() - getPaddingLeft() - getPaddingRight();
-		final int childHeight = getHeight() - getPaddingTop() - getPaddingBottom();
-		final int childWidthSpec = MeasureSpec.makeMeasureSpec((int) (width * 0.8f), MeasureSpec.AT_MOST);
-		final int childHeightSpec = MeasureSpec.makeMeasureSpec(childHeight, MeasureSpec.AT_MOST);
 
-		for (ImageView iv : mImageViews)
+	/**
+	 * Draw the labels of all slots. The text layouts have been created when the slots were measured, so this doesn't measure any text.
+	 */
+	private void drawLabels(Canvas canvas)
+	{
+		final StripLayoutEngine engine = mLayoutEngine;
+		final TextPaint paint = mLabelPaint;
+		final int color = paint.getColor();
+		for (int i = 0, l = mSlotCount; i < l; ++i)
 		{
-			iv.measure(childWidthSpec, childHeightSpec);
+			final Layout label = mSlotLabels[i] != null ? mSlotLabels[i].mLayout : null;
+			final float alpha = engine.getAlpha(i);
+			if (label == null || alpha <= 0 || mSlotBinder.getPosition(i) < 0)
+			{
+				continue;
+			}
+
+			final float left;
+			final float top;
+			if (mLabelPosition == LABEL_BELOW)
+			{
+				left = engine.getLeft(i) + (engine.getWidth(i) - label.getWidth()) / 2;
+				top = engine.getTop(i) + mSlotImageHeights[i] + mLabelSpacing;
+			}
+			else
+			{
+				left = engine.getLeft(i) + mSlotImageWidths[i] + mLabelSpacing;
+				top = engine.getTop(i) + (engine.getHeight(i) - label.getHeight()) / 2;
+			}
+
+			paint.setAlpha((int) ((color >>> 24) * alpha + 0.5f));
+			final int saveCount = canvas.save();
+			canvas.translate(left, top);
+			label.draw(canvas);
+			canvas.restoreToCount(saveCount);
 		}
+		paint.setColor(color);
+	}
 
-		mLastKnownCurrentPage = currentItem;
 
-		if (!mUpdatingPositions)
+	/**
+	 * Draw the titles of an {@link IPrimitiveTitlePagerAdapter}. All titles are drawn with the same {@link Paint}.
+	 */
+	private void drawPrimitiveTitles(Canvas canvas)
+	{
+		final StripLayoutEngine engine = mLayoutEngine;
+		final Paint paint = mPrimitivePaint;
+		final RectF rect = mPrimitiveRect;
+		for (int i = 0, l = mSlotCount; i < l; ++i)
 		{
-			updateDrawablePositions(currentItem, mLastKnownPositionOffset, false);
+			final float alpha = engine.getAlpha(i);
+			final int color = mSlotColors[i];
+			if (mSlotBinder.getPosition(i) < 0 || alpha <= 0 || mSlotImageWidths[i] == 0 || mSlotImageHeights[i] == 0 || (color >>> 24) == 0)
+			{
+				continue;
+			}
+
+			paint.setColor(color);
+			paint.setAlpha((int) ((color >>> 24) * alpha + 0.5f));
+			final int left = getImageLeft(i);
+			final int top = getImageTop(i);
+			rect.set(left, top, left + mSlotImageWidths[i], top + mSlotImageHeights[i]);
+
+			switch (mSlotShapes[i])
+			{
+				case IPrimitiveTitlePagerAdapter.SHAPE_OVAL:
+					canvas.drawOval(rect, paint);
+					break;
+				case IPrimitiveTitlePagerAdapter.SHAPE_ROUNDED_RECTANGLE:
+					final float radius = Math.min(rect.width(), rect.height()) / 4;
+					canvas.drawRoundRect(rect, radius, radius, paint);
+					break;
+				default:
+					canvas.drawRect(rect, paint);
+					break;
+			}
 		}
+	}
 
-		mUpdatingDrawables = false;
+
+	@Override
+	protected boolean verifyDrawable(Drawable who)
+	{
+		if (mSlotDrawables != null)
+		{
+			for (Drawable drawable : mSlotDrawables)
+			{
+				if (drawable == who)
+				{
+					return true;
+				}
+			}
+		}
+		return super.verifyDrawable(who);
 	}
 
 
@@ -214,198 +1763,117 @@ public class DrawablePagerTitleStrip extends ViewGroup implements ViewPager.Deco
 			oldAdapter.unregisterDataSetObserver(mPageListener);
 			mWatchingAdapter = null;
 		}
+
+		if (oldAdapter != newAdapter)
+		{
+			cancelPendingLoads();
+			if (mDrawableCache != null)
+			{
+				mDrawableCache.evictAll();
+			}
+		}
 		if (newAdapter != null)
 		{
-			if (!(newAdapter instanceof IDrawableTitlePagerAdapter))
+			if (!(newAdapter instanceof IDrawableTitlePagerAdapter) && !(newAdapter instanceof IPrimitiveTitlePagerAdapter))
 			{
-				throw new IllegalArgumentException("Adapter must implement IDrawableTitlePagerAdapter");
+				throw new IllegalArgumentException("Adapter must implement IDrawableTitlePagerAdapter or IPrimitiveTitlePagerAdapter");
 			}
 
 			newAdapter.registerDataSetObserver(mPageListener);
 			mWatchingAdapter = new WeakReference<PagerAdapter>(newAdapter);
+		}
 
-			Context context = getContext();
-
-			// TODO: we should determine the number of images dynamically
-			int newCount = Math.max(1, Math.min(9, newAdapter.getCount()));
-
-			if (mImageViews == null || mImageViews.length < newCount)
-			{
-				ImageView[] newImages = new ImageView[newCount];
-				int start = 0;
-				if (mImageViews != null)
-				{
-					System.arraycopy(mImageViews, 0, newImages, 0, mImageViews.length);
-					start = mImageViews.length;
-				}
-
-				for (int i = start; i < newCount; ++i)
-				{
-					addView(newImages[i] = new ImageView(context));
-				}
-				mImageViews = newImages;
-			}
-			else if (mImageViews.length > newCount)
-			{
-				ImageView[] newImages = new ImageView[newCount];
-				System.arraycopy(mImageViews, 0, newImages, 0, newCount);
+		// drop the slots of the old adapter first, this releases their drawables to the old adapter and they don't affect the slot count of the new one
+		setSlotCount(0);
+		mLabels.clear();
 
-				for (int i = newCount; i < mImageViews.length; ++i)
-				{
-					removeView(mImageViews[i]);
-				}
+		// drawable titles take precedence if the adapter implements both interfaces
+		mPrimitiveAdapter = newAdapter == null || newAdapter instanceof IDrawableTitlePagerAdapter ? null : (IPrimitiveTitlePagerAdapter) newAdapter;
+		mRecyclingAdapter = newAdapter instanceof IRecyclingDrawableTitlePagerAdapter ? (IRecyclingDrawableTitlePagerAdapter) newAdapter : null;
 
-				mImageViews = newImages;
-			}
-		}
-		else
+		if (newAdapter != null)
 		{
-			mImageViews = null;
+			setSlotCount(computeSlotCount(newAdapter));
 		}
 
 		if (mPager != null)
 		{
-			mLastKnownCurrentPage = -1;
 			mLastKnownPositionOffset = -1;
 			updateImages(mPager.getCurrentItem(), newAdapter);
 			requestLayout();
 		}
+		releaseMeasuredTitle();
 	}
 
 
-	@SuppressLint("NewApi")
 	void updateDrawablePositions(int position, float positionOffset, boolean force)
 	{
-		if (mImageViews == null || mImageViews.length == 0)
+		if (mSlotCount == 0)
 		{
 			return;
 		}
 
-		if (position != mLastKnownCurrentPage)
+		if (position != mSlotBinder.getCurrentPage())
 		{
-			updateImages(position, mPager.getAdapter());
+			shiftImages(position, mPager.getAdapter());
 		}
 		else if (!force && positionOffset == mLastKnownPositionOffset)
 		{
 			return;
 		}
 
-		mUpdatingPositions = true;
-
-		final int[] widths = new int[mImageViews.length];
-		for (int i = 0, l = mImageViews.length; i < l; ++i)
-		{
-			widths[i] = mImageViews[i].getMeasuredWidth();
-		}
-
-		final int stripWidth = getWidth();
-		final int stripHeight = getHeight();
-		final int paddingLeft = getPaddingLeft();
-		final int paddingRight = getPaddingRight();
-		final int paddingTop = getPaddingTop();
-		final int paddingBottom = getPaddingBottom();
-
-		float currOffset = positionOffset + 0.5f;
-		if (currOffset > 1.f)
-		{
-			currOffset -= 1.f;
-		}
-		final int currCenter = stripWidth / 2 - (int) ((widths[widths.length / 2] + mScaledTextSpacing) * (currOffset - 0.5f));
-		final int currLeft = currCenter - widths[widths.length / 2] / 2;
-
-		int maxBaseline = 0;
-		for (ImageView iv : mImageViews)
+		final int gravity;
+		switch (mGravity & Gravity.VERTICAL_GRAVITY_MASK)
 		{
-			maxBaseline = Math.max(maxBaseline, iv.getBaseline());
+			default:
+			case Gravity.TOP:
+				gravity = StripLayoutEngine.GRAVITY_TOP;
+				break;
+			case Gravity.CENTER_VERTICAL:
+				gravity = StripLayoutEngine.GRAVITY_CENTER_VERTICAL;
+				break;
+			case Gravity.BOTTOM:
+				gravity = StripLayoutEngine.GRAVITY_BOTTOM;
+				break;
 		}
 
-		int maxTextHeight = 0;
-		for (ImageView iv : mImageViews)
+		// titles or labels that are drawn onto the canvas need to be redrawn at their old and their new positions
+		final boolean drawsSlots = mImageViews == null || mLabelPosition != LABEL_NONE;
+		final StripLayoutEngine engine = mLayoutEngine;
+		engine.clearDirtyRegion();
+		if (drawsSlots)
 		{
-			maxTextHeight = Math.max(maxTextHeight, maxBaseline - iv.getBaseline() + iv.getMeasuredHeight());
+			engine.addVisibleSlotsToDirtyRegion();
 		}
 
-		final int vgrav = mGravity & Gravity.VERTICAL_GRAVITY_MASK;
+		// this binds the deferred slots that became visible
+		final boolean updatingDrawables = mUpdatingDrawables;
+		mUpdatingDrawables = true;
+		mSlotBinder.layout(getWidth(), getHeight(), getPaddingLeft(), getPaddingTop(), getPaddingRight(), getPaddingBottom(), mScaledTextSpacing, gravity,
+			positionOffset);
+		mUpdatingDrawables = updatingDrawables;
 
-		int left = currLeft;
-		for (int i = mImageViews.length / 2, l = mImageViews.length; i < l; ++i)
+		if (mImageViews != null)
 		{
-			int baseline = mImageViews[i].getBaseline();
-			int top;
-			switch (vgrav)
-			{
-				default:
-				case Gravity.TOP:
-					top = paddingTop + maxBaseline - baseline;
-					break;
-				case Gravity.CENTER_VERTICAL:
-					final int paddedHeight = stripHeight - paddingTop - paddingBottom;
-					final int centeredTop = (paddedHeight - maxTextHeight) / 2;
-					top = centeredTop + maxBaseline - baseline;
-					break;
-				case Gravity.BOTTOM:
-					final int bottomGravTop = stripHeight - paddingBottom - maxTextHeight;
-					top = bottomGravTop + maxBaseline - baseline;
-					break;
-			}
-
-			int right = left + widths[i];
-			mImageViews[i].layout(left, top, right, top + mImageViews[i].getMeasuredHeight());
-			left += widths[i] + mScaledTextSpacing;
-
-			if (VERSION.SDK_INT >= 14)
+			// the views invalidate themselves
+			for (int i = 0, l = mSlotCount; i < l; ++i)
 			{
-				if (stripWidth - right < paddingRight)
-				{
-					mImageViews[i].setAlpha(1 - ((float) Math.abs(Math.min(stripWidth - right - paddingRight, 0))) / widths[i]);
-				}
-				else
-				{
-					mImageViews[i].setAlpha(1f);
-				}
+				layoutSlotView(i);
 			}
 		}
 
-		left = currLeft;
-		for (int i = mImageViews.length / 2 - 1; i >= 0; --i)
+		if (drawsSlots)
 		{
-			int baseline = mImageViews[i].getBaseline();
-			int top;
-			switch (vgrav)
-			{
-				default:
-				case Gravity.TOP:
-					top = paddingTop + maxBaseline - baseline;
-					break;
-				case Gravity.CENTER_VERTICAL:
-					final int paddedHeight = stripHeight - paddingTop - paddingBottom;
-					final int centeredTop = (paddedHeight - maxTextHeight) / 2;
-					top = centeredTop + maxBaseline - baseline;
-					break;
-				case Gravity.BOTTOM:
-					final int bottomGravTop = stripHeight - paddingBottom - maxTextHeight;
-					top = bottomGravTop + maxBaseline - baseline;
-					break;
-			}
-			left -= widths[i] + mScaledTextSpacing;
-
-			mImageViews[i].layout(left, top, left + widths[i], top + mImageViews[i].getMeasuredHeight());
-
-			if (VERSION.SDK_INT >= 14)
+			engine.addVisibleSlotsToDirtyRegion();
+			if (!engine.isDirtyRegionEmpty())
 			{
-				if (left < paddingLeft)
-				{
-					mImageViews[i].setAlpha(1 - ((float) Math.abs(Math.min(left - paddingLeft, 0))) / widths[i]);
-				}
-				else
-				{
-					mImageViews[i].setAlpha(1f);
-				}
+				invalidate(engine.getDirtyLeft(), engine.getDirtyTop(), engine.getDirtyRight(), engine.getDirtyBottom());
 			}
 		}
 
+		onSlotsLaidOut(positionOffset);
+
 		mLastKnownPositionOffset = positionOffset;
-		mUpdatingPositions = false;
 	}
 
 
@@ -428,12 +1896,14 @@ public class DrawablePagerTitleStrip extends ViewGroup implements ViewPager.Deco
 		padding = getPaddingTop() + getPaddingBottom();
 		childHeight -= padding;
 
-		final int childWidthSpec = MeasureSpec.makeMeasureSpec((int) (widthSize * 0.8f), MeasureSpec.AT_MOST);
-		final int childHeightSpec = MeasureSpec.makeMeasureSpec(childHeight, MeasureSpec.AT_MOST);
-
-		for (ImageView iv : mImageViews)
+		final int maxWidth = (int) ((widthSize - getPaddingLeft() - getPaddingRight()) * MAX_TITLE_WIDTH);
+		for (int i = 0, l = mSlotCount; i < l; ++i)
 		{
-			iv.measure(childWidthSpec, childHeightSpec);
+			// deferred slots are measured when they are bound
+			if (!mSlotBinder.isDeferred(i))
+			{
+				measureSlot(i, maxWidth, childHeight);
+			}
 		}
 
 		if (heightMode == MeasureSpec.EXACTLY)
@@ -442,19 +1912,59 @@ public class DrawablePagerTitleStrip extends ViewGroup implements ViewPager.Deco
 		}
 		else
 		{
-			int textHeight = mImageViews[mImageViews.length / 2].getMeasuredHeight();
+			int textHeight = mSlotCount > 0 ? mLayoutEngine.getHeight(mLayoutEngine.centerSlot()) : 0;
 			setMeasuredDimension(widthSize, Math.max(minHeight, textHeight + padding));
 		}
 	}
 
 
+	@Override
+	protected void onSizeChanged(int w, int h, int oldw, int oldh)
+	{
+		super.onSizeChanged(w, h, oldw, oldh);
+
+		if (mPager == null || mPager.getAdapter() == null)
+		{
+			return;
+		}
+
+		final PagerAdapter adapter = mPager.getAdapter();
+		boolean rebind = false;
+
+		if (adapter instanceof ISizedDrawableTitlePagerAdapter)
+		{
+			// the drawables have been created for a different size, get new ones
+			cancelPendingLoads();
+			if (mDrawableCache != null)
+			{
+				mDrawableCache.evictAll();
+			}
+			mSlotBinder.unbind();
+			rebind = true;
+		}
+
+		final int slotCount = computeSlotCount(adapter);
+		if (slotCount != mSlotCount)
+		{
+			setSlotCount(slotCount);
+			rebind = true;
+		}
+
+		if (rebind)
+		{
+			updateImages(mPager.getCurrentItem(), adapter);
+		}
+		releaseMeasuredTitle();
+	}
+
+
 	@Override
 	protected void onLayout(boolean changed, int l, int t, int r, int b)
 	{
 		if (mPager != null)
 		{
 			final float offset = mLastKnownPositionOffset >= 0 ? mLastKnownPositionOffset : 0;
-			updateDrawablePositions(mLastKnownCurrentPage, offset, true);
+			updateDrawablePositions(mSlotBinder.getCurrentPage(), offset, true);
 		}
 	}
 
@@ -470,20 +1980,164 @@ public class DrawablePagerTitleStrip extends ViewGroup implements ViewPager.Deco
 		return minHeight;
 	}
 
-	private class PageListener extends DataSetObserver implements ViewPager.OnPageChangeListener, ViewPager.OnAdapterChangeListener
+	/**
+	 * The label of a position, its desired width and its text layout. The layout is only rebuilt when the available width changes.
+	 */
+	private static final class Label
 	{
-		private int mScrollState;
+		final CharSequence mText;
+		final float mDesiredWidth;
+		Layout mLayout;
+
+
+		Label(CharSequence text, TextPaint paint)
+		{
+			mText = text;
+			mDesiredWidth = text == null ? 0 : Layout.getDesiredWidth(text, paint);
+		}
+	}
+
+	/**
+	 * An asynchronous load of the drawable of a single position. It runs on the load executor and delivers its result on the UI thread. The strip is only held
+	 * weakly, so a load that never finishes doesn't keep the strip alive.
+	 */
+	private static final class LoadRequest implements Runnable, IAsyncDrawableTitlePagerAdapter.DrawableTitleCallback
+	{
+		private final WeakReference<DrawablePagerTitleStrip> mStrip;
+		private final Handler mHandler;
+		final IAsyncDrawableTitlePagerAdapter mAdapter;
+		final int mPosition;
+		final long mStartTime = SystemClock.uptimeMillis();
+
+		/**
+		 * Set on the UI thread when the result is no longer needed. Requests that have been cancelled before they've been started are skipped.
+		 */
+		volatile boolean mCancelled;
+
+
+		LoadRequest(DrawablePagerTitleStrip strip, IAsyncDrawableTitlePagerAdapter adapter, int position)
+		{
+			mStrip = new WeakReference<DrawablePagerTitleStrip>(strip);
+			mHandler = strip.mHandler;
+			mAdapter = adapter;
+			mPosition = position;
+		}
 
 
 		@Override
-		public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels)
+		public void run()
+		{
+			if (!mCancelled)
+			{
+				mAdapter.loadDrawableTitle(mPosition, this);
+			}
+		}
+
+
+		@Override
+		public void onDrawableTitleLoaded(int position, final Drawable drawable)
+		{
+			mHandler.post(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					final DrawablePagerTitleStrip strip = mStrip.get();
+					if (strip != null)
+					{
+						strip.applyLoadedDrawableTitle(LoadRequest.this, drawable);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Binds and measures the slots of the {@link StripSlotBinder} with the titles of the current adapter.
+	 */
+	private final class SlotCallback implements StripSlotBinder.Callback
+	{
+		@Override
+		public int getCount()
+		{
+			final PagerAdapter adapter = mPager != null ? mPager.getAdapter() : null;
+			return adapter != null ? adapter.getCount() : 0;
+		}
+
+
+		@Override
+		public boolean hasStableIds()
+		{
+			return mPager != null && mPager.getAdapter() instanceof IStableDrawableTitlePagerAdapter;
+		}
+
+
+		@Override
+		public long getTitleId(int position)
+		{
+			return ((IStableDrawableTitlePagerAdapter) mPager.getAdapter()).getDrawableTitleId(position);
+		}
+
+
+		@Override
+		public boolean isPreviewing()
+		{
+			// show previews while the pager is moving, these titles are visible for a few frames only
+			return mPager != null && mPager.getAdapter() instanceof IPreviewDrawableTitlePagerAdapter
+				&& mPageListener.mScrollState != ViewPager.SCROLL_STATE_IDLE;
+		}
+
+
+		@Override
+		public boolean bindTitle(int slot, int position)
 		{
-			if (positionOffset > 0.5f)
+			if (mPrimitiveAdapter != null)
 			{
-				// Consider ourselves to be on the next page when we're 50% of the way there.
-				position++;
+				mSlotColors[slot] = position >= 0 ? mPrimitiveAdapter.getTitleColor(position) : 0;
+				mSlotShapes[slot] = position >= 0 ? mPrimitiveAdapter.getTitleShape(position) : 0;
+				return true;
 			}
-			updateDrawablePositions(position, positionOffset, false);
+
+			final PagerAdapter adapter = mPager.getAdapter();
+			final boolean previewing = position >= 0 && isPreviewing() && (mDrawableCache == null || !mDrawableCache.contains(position));
+			Drawable drawable = previewing ? ((IPreviewDrawableTitlePagerAdapter) adapter).getPreviewDrawableTitle(position) : null;
+			final boolean preview = drawable != null;
+			if (!preview && position >= 0)
+			{
+				drawable = getDrawableTitle((IDrawableTitlePagerAdapter) adapter, position);
+			}
+			// set the drawable first, so the old one is released with its old position
+			setSlotDrawable(slot, drawable);
+			mSlotBinder.setPreview(slot, preview);
+			mHasPreviewSlots |= preview;
+			return position < 0 || mPendingLoads.get(position) == null;
+		}
+
+
+		@Override
+		public boolean bindLabel(int slot)
+		{
+			return DrawablePagerTitleStrip.this.bindLabel(slot, mPager != null ? mPager.getAdapter() : null);
+		}
+
+
+		@Override
+		public void measureSlot(int slot)
+		{
+			DrawablePagerTitleStrip.this.measureSlot(slot, getMaxTitleWidth(), getMaxSlotHeight());
+		}
+	}
+
+	private class PageListener extends DataSetObserver implements ViewPager.OnPageChangeListener, ViewPager.OnAdapterChangeListener,
+		DrawableTitleCache.OnEvictionListener
+	{
+		private int mScrollState;
+
+
+		@Override
+		public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels)
+		{
+			onPagerScrolled(position, positionOffset);
 		}
 
 
@@ -506,6 +2160,13 @@ public class DrawablePagerTitleStrip extends ViewGroup implements ViewPager.Deco
 		public void onPageScrollStateChanged(int state)
 		{
 			mScrollState = state;
+			mPrefetcher.onPageScrollStateChanged(state);
+
+			if (state == ViewPager.SCROLL_STATE_IDLE && upgradePreviewSlots())
+			{
+				final float offset = mLastKnownPositionOffset >= 0 ? mLastKnownPositionOffset : 0;
+				updateDrawablePositions(mSlotBinder.getCurrentPage(), offset, true);
+			}
 		}
 
 
@@ -517,12 +2178,38 @@ public class DrawablePagerTitleStrip extends ViewGroup implements ViewPager.Deco
 
 
 		@Override
-		public void onChanged()
+		public void onDrawableTitleRemoved(int position, Drawable drawable, boolean evicted)
 		{
-			updateImages(mPager.getCurrentItem(), mPager.getAdapter());
+			if (mRecyclingAdapter != null && !isSlotDrawable(drawable))
+			{
+				mRecyclingAdapter.releaseDrawableTitle(position, drawable);
+			}
+		}
 
+
+		@Override
+		public void onChanged()
+		{
+			cancelPendingLoads();
+			if (mDrawableCache != null)
+			{
+				mDrawableCache.evictAll();
+			}
+			// the titles might have changed, even if the drawables didn't
+			mLabels.clear();
+			onDataSetChanged();
+			final PagerAdapter adapter = mPager.getAdapter();
+			final int page = getBoundPage();
 			final float offset = mLastKnownPositionOffset >= 0 ? mLastKnownPositionOffset : 0;
-			updateDrawablePositions(mPager.getCurrentItem(), offset, true);
+			if (updateImages(page, adapter))
+			{
+				updateDrawablePositions(page, offset, true);
+			}
+			// the number of titles and their widths might have changed
+			if (updateSlotCount(adapter))
+			{
+				updateDrawablePositions(page, offset, true);
+			}
 		}
 	}
 }
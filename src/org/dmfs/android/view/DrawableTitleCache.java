@@ -0,0 +1,616 @@
+/*
+ * Copyright (C) 2014 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dmfs.android.view;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+
+
+/**
+ * A bounded, position keyed LRU cache for title {@link Drawable}s. Set it on a {@link DrawablePagerTitleStrip} using
+ * {@link DrawablePagerTitleStrip#setDrawableCache(DrawableTitleCache)} to avoid asking the adapter for the same drawables over and over again.
+ * <p>
+ * By default the size of the cache is measured in entries. Use {@link #withByteBudget(int)} to get a cache that's bounded by the (approximate) number of
+ * bytes of the cached drawables or override {@link #sizeOf(int, Drawable)} to use a custom metric.
+ * </p>
+ * <p>
+ * This class is not thread safe. It's meant to be used on the UI thread only. Listeners may modify the cache while they are notified.
+ * </p>
+ *
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public class DrawableTitleCache
+{
+	/**
+	 * Interface of a listener that's notified whenever a {@link Drawable} is removed from a {@link DrawableTitleCache}.
+	 */
+	public interface OnEvictionListener
+	{
+		/**
+		 * Called when a drawable has been removed from the cache, either because the cache exceeded its size or because it has been removed or replaced
+		 * explicitly.
+		 *
+		 * @param position
+		 *            The position of the drawable.
+		 * @param drawable
+		 *            The drawable that has been removed.
+		 * @param evicted
+		 *            <code>true</code> if the drawable has been removed to make space, <code>false</code> if it has been removed or replaced explicitly.
+		 */
+		public void onDrawableTitleRemoved(int position, Drawable drawable, boolean evicted);
+	}
+
+	/**
+	 * The maximum number of unused {@link Entry} objects that are kept for reuse.
+	 */
+	private final static int MAX_RECYCLED_ENTRIES = 8;
+
+	/**
+	 * An entry of the cache. The entries are linked in LRU order and chained in the buckets of {@link DrawableTitleCache#mTable}.
+	 */
+	private final static class Entry
+	{
+		int position;
+		Drawable drawable;
+		Entry previous;
+		Entry next;
+		Entry nextInBucket;
+	}
+
+	/**
+	 * The hash table of the entries by position. Unlike a map with <code>Integer</code> keys it doesn't box the positions and doesn't allocate anything per
+	 * entry. The length is always a power of 2.
+	 */
+	private Entry[] mTable = new Entry[16];
+	private int mEntryCount;
+
+	/**
+	 * The least and the most recently used entry.
+	 */
+	private Entry mEldest;
+	private Entry mNewest;
+
+	/**
+	 * A list of unused entries, linked by {@link Entry#next}, so putting a drawable after another one has been removed doesn't allocate anything.
+	 */
+	private Entry mRecycledEntries;
+	private int mRecycledCount;
+
+	private final int mMaxSize;
+	private int mSize;
+
+	private int mHitCount;
+	private int mMissCount;
+	private int mEvictionCount;
+
+	private OnEvictionListener mOnEvictionListener;
+
+	/**
+	 * The listener of the title strip that uses this cache. It's kept separately, so it doesn't interfere with the listener of the user.
+	 */
+	private OnEvictionListener mInternalEvictionListener;
+
+
+	/**
+	 * Create a cache that holds at most the given number of entries, unless {@link #sizeOf(int, Drawable)} has been overridden.
+	 *
+	 * @param maxSize
+	 *            The maximum size of the cache.
+	 */
+	public DrawableTitleCache(int maxSize)
+	{
+		if (maxSize <= 0)
+		{
+			throw new IllegalArgumentException("maxSize must be > 0");
+		}
+		mMaxSize = maxSize;
+	}
+
+
+	/**
+	 * Create a cache that holds drawables up to the given number of bytes. The size of a {@link BitmapDrawable} is the size of its {@link Bitmap}, the size of
+	 * any other drawable is estimated from its intrinsic dimensions assuming 4 bytes per pixel.
+	 *
+	 * @param maxBytes
+	 *            The maximum number of bytes to cache.
+	 * @return A new {@link DrawableTitleCache}.
+	 */
+	public static DrawableTitleCache withByteBudget(int maxBytes)
+	{
+		return new DrawableTitleCache(maxBytes)
+		{
+			@Override
+			protected int sizeOf(int position, Drawable drawable)
+			{
+				if (drawable instanceof BitmapDrawable)
+				{
+					Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+					if (bitmap != null)
+					{
+						return bitmap.getRowBytes() * bitmap.getHeight();
+					}
+				}
+				return Math.max(1, Math.max(0, drawable.getIntrinsicWidth()) * Math.max(0, drawable.getIntrinsicHeight()) * 4);
+			}
+		};
+	}
+
+
+	/**
+	 * Set a listener that's notified whenever a drawable is removed from the cache.
+	 *
+	 * @param listener
+	 *            The {@link OnEvictionListener} or <code>null</code> to remove the current listener.
+	 */
+	public void setOnEvictionListener(OnEvictionListener listener)
+	{
+		mOnEvictionListener = listener;
+	}
+
+
+	/**
+	 * Set a listener for the title strip that uses this cache. This is notified before the listener set by {@link #setOnEvictionListener(OnEvictionListener)}.
+	 */
+	void setInternalEvictionListener(OnEvictionListener listener)
+	{
+		mInternalEvictionListener = listener;
+	}
+
+
+	/**
+	 * Return the cached drawable for the given position and mark it as most recently used.
+	 *
+	 * @param position
+	 *            The position.
+	 * @return The {@link Drawable} or <code>null</code> if there is no drawable for this position in the cache.
+	 */
+	public Drawable get(int position)
+	{
+		final Entry entry = find(position);
+		if (entry == null)
+		{
+			++mMissCount;
+			return null;
+		}
+
+		++mHitCount;
+		unlink(entry);
+		linkNewest(entry);
+		return entry.drawable;
+	}
+
+
+	/**
+	 * Check if the cache contains a drawable for the given position. Unlike {@link #get(int)} this neither updates the LRU order nor the hit or miss counts.
+	 *
+	 * @param position
+	 *            The position.
+	 * @return <code>true</code> if there is a drawable for this position in the cache.
+	 */
+	public boolean contains(int position)
+	{
+		return find(position) != null;
+	}
+
+
+	/**
+	 * Check if the cache holds exactly the given drawable for the given position. Like {@link #contains(int)} this neither updates the LRU order nor the hit
+	 * or miss counts.
+	 */
+	boolean holds(int position, Drawable drawable)
+	{
+		final Entry entry = find(position);
+		return drawable != null && entry != null && entry.drawable == drawable;
+	}
+
+
+	/**
+	 * Put a drawable into the cache, replacing any existing drawable for the same position. A drawable that's larger than the maximum size of the cache is not
+	 * cached, it only removes the existing drawable of its position.
+	 *
+	 * @param position
+	 *            The position.
+	 * @param drawable
+	 *            The {@link Drawable}, must not be <code>null</code>.
+	 */
+	public void put(int position, Drawable drawable)
+	{
+		if (drawable == null)
+		{
+			throw new NullPointerException("drawable must not be null");
+		}
+
+		final int size = sizeOf(position, drawable);
+		Entry entry = find(position);
+		if (size > mMaxSize)
+		{
+			// it would be evicted right away, which would hand it to the eviction listeners while the caller is still using it
+			if (entry != null && entry.drawable != drawable)
+			{
+				remove(position);
+			}
+			return;
+		}
+
+		if (entry == null)
+		{
+			entry = obtainEntry(position, drawable);
+			insert(entry);
+			linkNewest(entry);
+			mSize += size;
+		}
+		else
+		{
+			final Drawable previous = entry.drawable;
+			entry.drawable = drawable;
+			unlink(entry);
+			linkNewest(entry);
+			mSize += size - sizeOf(position, previous);
+			if (previous != drawable)
+			{
+				notifyRemoved(position, previous, false);
+			}
+		}
+		trimToSize(mMaxSize);
+	}
+
+
+	/**
+	 * Remove the drawable of the given position from the cache.
+	 *
+	 * @param position
+	 *            The position.
+	 * @return The removed {@link Drawable} or <code>null</code> if there was none.
+	 */
+	public Drawable remove(int position)
+	{
+		final Entry entry = find(position);
+		if (entry == null)
+		{
+			return null;
+		}
+
+		final Drawable previous = entry.drawable;
+		drop(entry);
+		notifyRemoved(position, previous, false);
+		return previous;
+	}
+
+
+	/**
+	 * Remove the drawables of a range of positions from the cache.
+	 *
+	 * @param positionStart
+	 *            The first position to remove.
+	 * @param itemCount
+	 *            The number of positions to remove.
+	 */
+	public void removeRange(int positionStart, int itemCount)
+	{
+		if (itemCount <= mEntryCount)
+		{
+			for (int position = positionStart, end = positionStart + itemCount; position < end; ++position)
+			{
+				remove(position);
+			}
+		}
+		else
+		{
+			// the range is larger than the cache, so it's cheaper to iterate the cache, the listeners are notified afterwards, since they may modify the cache
+			final int positionEnd = positionStart + itemCount;
+			Entry removed = null;
+			Entry entry = mEldest;
+			while (entry != null)
+			{
+				final Entry next = entry.next;
+				if (entry.position >= positionStart && entry.position < positionEnd)
+				{
+					unlink(entry);
+					delete(entry);
+					mSize -= sizeOf(entry.position, entry.drawable);
+					entry.next = removed;
+					removed = entry;
+				}
+				entry = next;
+			}
+
+			while (removed != null)
+			{
+				final Entry next = removed.next;
+				final int position = removed.position;
+				final Drawable drawable = removed.drawable;
+				recycleEntry(removed);
+				notifyRemoved(position, drawable, false);
+				removed = next;
+			}
+		}
+	}
+
+
+	/**
+	 * Remove all drawables from the cache.
+	 */
+	public void evictAll()
+	{
+		trimToSize(-1);
+	}
+
+
+	/**
+	 * Remove the least recently used drawables until the size of the cache is not larger than the given size.
+	 *
+	 * @param maxSize
+	 *            The maximum size of the cache after this call, -1 to remove all drawables.
+	 */
+	public void trimToSize(int maxSize)
+	{
+		// the eldest entry is looked up again after every notification, since the listeners may modify the cache
+		while (mSize > maxSize && mEldest != null)
+		{
+			final Entry eldest = mEldest;
+			final int position = eldest.position;
+			final Drawable drawable = eldest.drawable;
+			drop(eldest);
+			++mEvictionCount;
+			notifyRemoved(position, drawable, maxSize >= 0);
+		}
+	}
+
+
+	/**
+	 * Return the size of the given drawable in the units of this cache. The default implementation returns 1, so the size of the cache is the number of
+	 * entries. The size of an entry must not change while it's in the cache.
+	 *
+	 * @param position
+	 *            The position of the drawable.
+	 * @param drawable
+	 *            The {@link Drawable}.
+	 * @return The size of the entry, must be positive.
+	 */
+	protected int sizeOf(int position, Drawable drawable)
+	{
+		return 1;
+	}
+
+
+	/**
+	 * @return The current size of the cache in the units of {@link #sizeOf(int, Drawable)}.
+	 */
+	public int size()
+	{
+		return mSize;
+	}
+
+
+	/**
+	 * @return The maximum size of the cache in the units of {@link #sizeOf(int, Drawable)}.
+	 */
+	public int maxSize()
+	{
+		return mMaxSize;
+	}
+
+
+	/**
+	 * @return The number of times {@link #get(int)} returned a drawable.
+	 */
+	public int hitCount()
+	{
+		return mHitCount;
+	}
+
+
+	/**
+	 * @return The number of times {@link #get(int)} returned <code>null</code>.
+	 */
+	public int missCount()
+	{
+		return mMissCount;
+	}
+
+
+	/**
+	 * @return The number of drawables that have been removed to make space or by {@link #evictAll()}.
+	 */
+	public int evictionCount()
+	{
+		return mEvictionCount;
+	}
+
+
+	/**
+	 * Remove the given entry from the cache without notifying the listeners and recycle it.
+	 */
+	private void drop(Entry entry)
+	{
+		unlink(entry);
+		delete(entry);
+		mSize -= sizeOf(entry.position, entry.drawable);
+		recycleEntry(entry);
+	}
+
+
+	/**
+	 * Returns the entry of the given position or <code>null</code> if there is none.
+	 */
+	private Entry find(int position)
+	{
+		Entry entry = mTable[bucket(position, mTable.length)];
+		while (entry != null && entry.position != position)
+		{
+			entry = entry.nextInBucket;
+		}
+		return entry;
+	}
+
+
+	/**
+	 * Add the given entry to the hash table, which must not contain an entry for the same position.
+	 */
+	private void insert(Entry entry)
+	{
+		if (++mEntryCount > mTable.length * 3 / 4)
+		{
+			final Entry[] oldTable = mTable;
+			final Entry[] newTable = new Entry[oldTable.length * 2];
+			for (Entry chain : oldTable)
+			{
+				while (chain != null)
+				{
+					final Entry next = chain.nextInBucket;
+					final int bucket = bucket(chain.position, newTable.length);
+					chain.nextInBucket = newTable[bucket];
+					newTable[bucket] = chain;
+					chain = next;
+				}
+			}
+			mTable = newTable;
+		}
+
+		final int bucket = bucket(entry.position, mTable.length);
+		entry.nextInBucket = mTable[bucket];
+		mTable[bucket] = entry;
+	}
+
+
+	/**
+	 * Remove the given entry from the hash table.
+	 */
+	private void delete(Entry entry)
+	{
+		final int bucket = bucket(entry.position, mTable.length);
+		Entry chain = mTable[bucket];
+		if (chain == entry)
+		{
+			mTable[bucket] = entry.nextInBucket;
+		}
+		else
+		{
+			while (chain.nextInBucket != entry)
+			{
+				chain = chain.nextInBucket;
+			}
+			chain.nextInBucket = entry.nextInBucket;
+		}
+		entry.nextInBucket = null;
+		--mEntryCount;
+	}
+
+
+	private static int bucket(int position, int tableLength)
+	{
+		// spread the positions, so positions that are a multiple of the table length apart don't end up in the same bucket
+		final int hash = position * 0x9e3779b9;
+		return (hash ^ hash >>> 16) & (tableLength - 1);
+	}
+
+
+	/**
+	 * Append the given entry to the LRU list as the most recently used one.
+	 */
+	private void linkNewest(Entry entry)
+	{
+		entry.previous = mNewest;
+		entry.next = null;
+		if (mNewest != null)
+		{
+			mNewest.next = entry;
+		}
+		else
+		{
+			mEldest = entry;
+		}
+		mNewest = entry;
+	}
+
+
+	/**
+	 * Remove the given entry from the LRU list.
+	 */
+	private void unlink(Entry entry)
+	{
+		if (entry.previous != null)
+		{
+			entry.previous.next = entry.next;
+		}
+		else
+		{
+			mEldest = entry.next;
+		}
+
+		if (entry.next != null)
+		{
+			entry.next.previous = entry.previous;
+		}
+		else
+		{
+			mNewest = entry.previous;
+		}
+		entry.previous = null;
+		entry.next = null;
+	}
+
+
+	private Entry obtainEntry(int position, Drawable drawable)
+	{
+		Entry entry = mRecycledEntries;
+		if (entry != null)
+		{
+			mRecycledEntries = entry.next;
+			--mRecycledCount;
+			entry.next = null;
+		}
+		else
+		{
+			entry = new Entry();
+		}
+		entry.position = position;
+		entry.drawable = drawable;
+		return entry;
+	}
+
+
+	private void recycleEntry(Entry entry)
+	{
+		// don't keep the drawable alive
+		entry.drawable = null;
+		entry.previous = null;
+		if (mRecycledCount < MAX_RECYCLED_ENTRIES)
+		{
+			entry.next = mRecycledEntries;
+			mRecycledEntries = entry;
+			++mRecycledCount;
+		}
+		else
+		{
+			entry.next = null;
+		}
+	}
+
+
+	private void notifyRemoved(int position, Drawable drawable, boolean evicted)
+	{
+		if (mInternalEvictionListener != null)
+		{
+			mInternalEvictionListener.onDrawableTitleRemoved(position, drawable, evicted);
+		}
+		if (mOnEvictionListener != null)
+		{
+			mOnEvictionListener.onDrawableTitleRemoved(position, drawable, evicted);
+		}
+	}
+}
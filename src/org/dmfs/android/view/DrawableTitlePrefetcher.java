@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2014 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dmfs.android.view;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+
+
+/**
+ * Warms the drawable cache of a {@link DrawablePagerTitleStrip} with the titles that are about to scroll into the strip. It tracks the direction and the
+ * velocity of the pager and prefetches the titles ahead of the swipe when the UI thread is idle. Each idle run is limited to {@link #FRAME_BUDGET_NANOS}.
+ * <p>
+ * The velocity is reset whenever the pager comes to rest, so the next swipe doesn't start out in the direction of the previous one. The visible and the
+ * prefetched titles never exceed {@link DrawableTitleCache#maxSize()}, so prefetching doesn't push the visible titles out of a cache that's measured in
+ * entries.
+ * </p>
+ *
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+final class DrawableTitlePrefetcher implements MessageQueue.IdleHandler
+{
+	/**
+	 * The maximum time to spend prefetching in one idle run.
+	 */
+	private final static long FRAME_BUDGET_NANOS = 4000000L; // 4 ms
+
+	/**
+	 * The minimum velocity in pages per second to consider the pager moving.
+	 */
+	private final static float MIN_VELOCITY = 0.1f;
+
+	private final DrawablePagerTitleStrip mStrip;
+
+	private int mDistance;
+
+	private float mLastScrollPosition = -1;
+	private long mLastScrollTime;
+	private float mVelocity;
+
+	private boolean mScheduled;
+	private int mNextPosition;
+	private int mEndPosition;
+	private int mStep;
+
+
+	DrawableTitlePrefetcher(DrawablePagerTitleStrip strip)
+	{
+		mStrip = strip;
+	}
+
+
+	/**
+	 * Set the number of pages to prefetch ahead of the visible titles, 0 disables prefetching.
+	 */
+	void setDistance(int distance)
+	{
+		mDistance = Math.max(0, distance);
+		if (mDistance == 0)
+		{
+			stop();
+		}
+	}
+
+
+	int getDistance()
+	{
+		return mDistance;
+	}
+
+
+	/**
+	 * Update the prefetch window after the pager has been scrolled.
+	 *
+	 * @param position
+	 *            The position of the first visible page.
+	 * @param positionOffset
+	 *            The offset of the first visible page.
+	 * @param firstBound
+	 *            The first position that's currently bound to the strip.
+	 * @param lastBound
+	 *            The last position that's currently bound to the strip.
+	 */
+	void onPageScrolled(int position, float positionOffset, int firstBound, int lastBound)
+	{
+		if (mDistance == 0)
+		{
+			return;
+		}
+
+		final float scrollPosition = position + positionOffset;
+		final long now = SystemClock.uptimeMillis();
+
+		if (mLastScrollPosition >= 0 && now > mLastScrollTime)
+		{
+			// pages per second, smoothed a bit to get rid of the jitter of single frames
+			final float velocity = (scrollPosition - mLastScrollPosition) * 1000f / (now - mLastScrollTime);
+			mVelocity = (mVelocity + velocity) / 2;
+		}
+		mLastScrollPosition = scrollPosition;
+		mLastScrollTime = now;
+
+		if (Math.abs(mVelocity) < MIN_VELOCITY)
+		{
+			return;
+		}
+
+		// look further ahead on faster swipes, but don't evict the visible titles to make space for the prefetched ones
+		int distance = mDistance + (int) Math.abs(mVelocity);
+		final DrawableTitleCache cache = mStrip.getDrawableCache();
+		if (cache != null)
+		{
+			distance = Math.min(distance, cache.maxSize() - (lastBound - firstBound + 1));
+		}
+		if (distance <= 0)
+		{
+			return;
+		}
+
+		if (mVelocity > 0)
+		{
+			mNextPosition = lastBound + 1;
+			mEndPosition = lastBound + distance;
+			mStep = 1;
+		}
+		else
+		{
+			mNextPosition = firstBound - 1;
+			mEndPosition = firstBound - distance;
+			mStep = -1;
+		}
+
+		if (!mScheduled)
+		{
+			Looper.myQueue().addIdleHandler(this);
+			mScheduled = true;
+		}
+	}
+
+
+	/**
+	 * Forget the velocity of the last swipe once the pager has come to rest.
+	 *
+	 * @param state
+	 *            The new scroll state of the pager.
+	 */
+	void onPageScrollStateChanged(int state)
+	{
+		if (state == ViewPager.SCROLL_STATE_IDLE)
+		{
+			mLastScrollPosition = -1;
+			mVelocity = 0;
+		}
+	}
+
+
+	/**
+	 * Stop prefetching and forget the current velocity.
+	 */
+	void stop()
+	{
+		if (mScheduled)
+		{
+			Looper.myQueue().removeIdleHandler(this);
+			mScheduled = false;
+		}
+		mLastScrollPosition = -1;
+		mVelocity = 0;
+	}
+
+
+	@Override
+	public boolean queueIdle()
+	{
+		final long start = System.nanoTime();
+		while ((mEndPosition - mNextPosition) * mStep >= 0)
+		{
+			final int position = mNextPosition;
+			mNextPosition += mStep;
+			mStrip.prefetchDrawableTitle(position);
+
+			if (System.nanoTime() - start > FRAME_BUDGET_NANOS)
+			{
+				// continue with the next idle run
+				return true;
+			}
+		}
+		mScheduled = false;
+		return false;
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2014 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dmfs.android.view;
+
+import java.util.concurrent.Executor;
+
+import android.graphics.drawable.Drawable;
+import android.support.v4.view.PagerAdapter;
+
+
+/**
+ * An {@link IDrawableTitlePagerAdapter} that loads its title drawables asynchronously. Implement this if loading a title drawable is expensive, i.e. if it
+ * needs to be decoded or loaded from disk or network.
+ * <p>
+ * The title strip calls {@link #getDrawableTitle(int)} on the UI thread to get a placeholder that's shown until the actual drawable has been loaded. So
+ * {@link #getDrawableTitle(int)} should be cheap. The actual drawable is loaded by calling {@link #loadDrawableTitle(int, DrawableTitleCallback)} on the
+ * {@link Executor} that has been set with {@link DrawablePagerTitleStrip#setDrawableLoadExecutor(Executor)}.
+ * </p>
+ *
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public interface IAsyncDrawableTitlePagerAdapter extends IDrawableTitlePagerAdapter
+{
+	/**
+	 * Callback interface to deliver asynchronously loaded title drawables.
+	 */
+	public interface DrawableTitleCallback
+	{
+		/**
+		 * Deliver the drawable for the given position. This method may be called on any thread.
+		 *
+		 * @param position
+		 *            The position.
+		 * @param drawable
+		 *            The {@link Drawable} or <code>null</code> if it couldn't be loaded.
+		 */
+		public void onDrawableTitleLoaded(int position, Drawable drawable);
+	}
+
+
+	/**
+	 * Load the {@link Drawable} for the item at the given position and pass it to the given callback once it's ready. This method is called on a background
+	 * thread, so it must not access any views or the {@link PagerAdapter} state that's not thread safe.
+	 *
+	 * @param position
+	 *            The position.
+	 * @param callback
+	 *            The {@link DrawableTitleCallback} to call when the drawable has been loaded.
+	 */
+	public void loadDrawableTitle(int position, DrawableTitleCallback callback);
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2014 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dmfs.android.view;
+
+import android.graphics.drawable.Drawable;
+
+
+/**
+ * An {@link IDrawableTitlePagerAdapter} that can provide a cheap preview of its titles, like a low resolution version or a placeholder. While the pager is
+ * dragged or settling the title strip shows previews for titles that are not in its {@link DrawableTitleCache}, because these are visible for a few frames
+ * only. Once the pager is idle the previews are replaced by the actual title drawables.
+ *
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public interface IPreviewDrawableTitlePagerAdapter extends IDrawableTitlePagerAdapter
+{
+	/**
+	 * Return a preview of the title of the item at the given position. This is called on the UI thread while the pager is scrolling, so it should be cheap.
+	 * Previews are never cached. If the adapter is an {@link IRecyclingDrawableTitlePagerAdapter} they are released like any other title drawable once they've
+	 * been replaced.
+	 *
+	 * @param position
+	 *            The position.
+	 * @return A {@link Drawable} or <code>null</code> to show the actual title right away.
+	 */
+	public Drawable getPreviewDrawableTitle(int position);
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2014 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dmfs.android.view;
+
+import android.graphics.drawable.Drawable;
+
+
+/**
+ * An alternative to {@link IDrawableTitlePagerAdapter} for titles that are just a colored shape, like the swatches of a color picker. The title strip draws
+ * these titles directly, without creating any {@link Drawable} or view per title. Titles of this kind are always drawn onto the canvas of the strip, no matter
+ * which render mode has been set.
+ * <p>
+ * All titles have the same size, see {@link DrawablePagerTitleStrip#setPrimitiveTitleSize(int)}.
+ * </p>
+ *
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public interface IPrimitiveTitlePagerAdapter
+{
+	/**
+	 * A rectangle that fills the title.
+	 */
+	public final static int SHAPE_RECTANGLE = 0;
+
+	/**
+	 * An oval (or a circle if the title is square) that fills the title.
+	 */
+	public final static int SHAPE_OVAL = 1;
+
+	/**
+	 * A rectangle with rounded corners that fills the title.
+	 */
+	public final static int SHAPE_ROUNDED_RECTANGLE = 2;
+
+
+	/**
+	 * Return the color of the title of the item at the given position.
+	 *
+	 * @param position
+	 *            The position.
+	 * @return The color as an ARGB int.
+	 */
+	public int getTitleColor(int position);
+
+
+	/**
+	 * Return the shape of the title of the item at the given position.
+	 *
+	 * @param position
+	 *            The position.
+	 * @return One of {@link #SHAPE_RECTANGLE}, {@link #SHAPE_OVAL} or {@link #SHAPE_ROUNDED_RECTANGLE}.
+	 */
+	public int getTitleShape(int position);
+}
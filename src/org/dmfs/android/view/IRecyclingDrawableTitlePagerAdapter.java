@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2014 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dmfs.android.view;
+
+import android.graphics.drawable.Drawable;
+
+
+/**
+ * An {@link IDrawableTitlePagerAdapter} that wants to know when the title strip no longer uses a title {@link Drawable}. Implement this to recycle the
+ * drawables or their bitmaps, e.g. by returning them to a pool.
+ *
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public interface IRecyclingDrawableTitlePagerAdapter extends IDrawableTitlePagerAdapter
+{
+	/**
+	 * Called on the UI thread when a title drawable is no longer shown by any slot of the title strip and is not held by its {@link DrawableTitleCache}. The
+	 * strip won't use the drawable again unless the adapter returns it again.
+	 * <p>
+	 * Note that this is called for every drawable the strip has received from the adapter, including the placeholders of an
+	 * {@link IAsyncDrawableTitlePagerAdapter}. Don't recycle drawables that are shared between several positions.
+	 * </p>
+	 *
+	 * @param position
+	 *            The position the drawable has been shown for.
+	 * @param drawable
+	 *            The {@link Drawable} that's no longer used.
+	 */
+	public void releaseDrawableTitle(int position, Drawable drawable);
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2014 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dmfs.android.view;
+
+import android.graphics.drawable.Drawable;
+
+
+/**
+ * An {@link IDrawableTitlePagerAdapter} that's able to create title drawables of a specific size. Implement this if your drawables are bitmaps that are
+ * larger than the title strip, so you can decode them at the size they're actually shown.
+ * <p>
+ * The title strip calls {@link #getDrawableTitle(int, int, int)} instead of {@link #getDrawableTitle(int)}. It doesn't ask for any titles before it has been
+ * laid out, so its height must not depend on the titles, e.g. give it a fixed height or a background with a minimum height.
+ * </p>
+ *
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public interface ISizedDrawableTitlePagerAdapter extends IDrawableTitlePagerAdapter
+{
+	/**
+	 * Return a {@link Drawable} for the item at the given position that fits into a slot of the given size. The drawable may be smaller than that, but it
+	 * should not be larger, otherwise it gets scaled down when drawn.
+	 *
+	 * @param position
+	 *            The position.
+	 * @param maxWidth
+	 *            The maximum width of the drawable in pixels.
+	 * @param maxHeight
+	 *            The maximum height of the drawable in pixels.
+	 * @return A {@link Drawable}.
+	 */
+	public Drawable getDrawableTitle(int position, int maxWidth, int maxHeight);
+}
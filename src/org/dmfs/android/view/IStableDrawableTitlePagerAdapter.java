@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2014 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dmfs.android.view;
+
+import android.graphics.drawable.Drawable;
+
+
+/**
+ * An {@link IDrawableTitlePagerAdapter} with stable title ids. If the id of a title didn't change, the title strip assumes that the title drawable didn't
+ * change either and doesn't ask for it again. This saves a lot of work when the data set changes but most titles stay the same.
+ *
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+public interface IStableDrawableTitlePagerAdapter extends IDrawableTitlePagerAdapter
+{
+	/**
+	 * Return an id that identifies the title {@link Drawable} of the item at the given position. Two positions return the same id only if their title
+	 * drawables look the same.
+	 *
+	 * @param position
+	 *            The position.
+	 * @return The id of the title.
+	 */
+	public long getDrawableTitleId(int position);
+}
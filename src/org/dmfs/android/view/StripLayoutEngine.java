@@ -0,0 +1,433 @@
+/*
+ * Copyright (C) 2014 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dmfs.android.view;
+
+/**
+ * Computes the positions of the titles of a {@link DrawablePagerTitleStrip}. This class contains the pure layout math, it doesn't depend on any Android
+ * classes.
+ * <p>
+ * The titles are shown in slots. The slots form a ring buffer, so they can be rotated when the current page changes without moving any slot content around.
+ * The <em>logical index</em> of a slot is its index from left to right, with <code>getSlotCount() / 2</code> being the title of the current page. Use
+ * {@link #slotIndex(int)} to get the actual index of a slot.
+ * </p>
+ * <p>
+ * All slot arrays are allocated when the slot count changes, a layout pass doesn't allocate anything.
+ * </p>
+ *
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+final class StripLayoutEngine
+{
+	/**
+	 * Align the titles at the top of the strip.
+	 */
+	final static int GRAVITY_TOP = 0;
+
+	/**
+	 * Center the titles vertically.
+	 */
+	final static int GRAVITY_CENTER_VERTICAL = 1;
+
+	/**
+	 * Align the titles at the bottom of the strip.
+	 */
+	final static int GRAVITY_BOTTOM = 2;
+
+	private int mSlotCount;
+
+	/**
+	 * The index of the slot with logical index 0.
+	 */
+	private int mRingStart;
+
+	private int[] mWidths = new int[0];
+	private int[] mHeights = new int[0];
+	private int[] mBaselines = new int[0];
+	private int[] mLefts = new int[0];
+	private int[] mTops = new int[0];
+	private int[] mRights = new int[0];
+	private int[] mBottoms = new int[0];
+	private float[] mAlphas = new float[0];
+
+	/**
+	 * The maximum baseline of all slots and the maximum slot height relative to that baseline. These are only updated if {@link #mMetricsDirty} is set, i.e.
+	 * after the size of a slot has changed.
+	 */
+	private int mMaxBaseline;
+	private int mMaxHeight;
+	private boolean mMetricsDirty;
+
+	/**
+	 * The region that needs to be redrawn, see {@link #addVisibleSlotsToDirtyRegion()}. It's empty if the left edge is not left of the right edge.
+	 */
+	private int mDirtyLeft;
+	private int mDirtyTop;
+	private int mDirtyRight;
+	private int mDirtyBottom;
+
+
+	/**
+	 * Set the number of slots. This resets the size and position of all slots.
+	 */
+	void setSlotCount(int count)
+	{
+		if (count != mSlotCount)
+		{
+			mWidths = new int[count];
+			mHeights = new int[count];
+			mBaselines = new int[count];
+			mLefts = new int[count];
+			mTops = new int[count];
+			mRights = new int[count];
+			mBottoms = new int[count];
+			mAlphas = new float[count];
+			mSlotCount = count;
+		}
+		mRingStart = 0;
+		mMetricsDirty = true;
+	}
+
+
+	int getSlotCount()
+	{
+		return mSlotCount;
+	}
+
+
+	/**
+	 * Returns the index of the slot with the given logical index.
+	 */
+	int slotIndex(int logicalIndex)
+	{
+		final int index = mRingStart + logicalIndex;
+		return index < mSlotCount ? index : index - mSlotCount;
+	}
+
+
+	/**
+	 * Returns the index of the slot of the current page.
+	 */
+	int centerSlot()
+	{
+		return slotIndex(mSlotCount / 2);
+	}
+
+
+	/**
+	 * Rotate the ring of slots by the given number of slots. After this call the slot with logical index <code>i + delta</code> has logical index
+	 * <code>i</code>.
+	 */
+	void rotate(int delta)
+	{
+		if (mSlotCount == 0)
+		{
+			return;
+		}
+		int ringStart = (mRingStart + delta) % mSlotCount;
+		if (ringStart < 0)
+		{
+			ringStart += mSlotCount;
+		}
+		mRingStart = ringStart;
+	}
+
+
+	/**
+	 * Set the measured size of a slot.
+	 *
+	 * @param slot
+	 *            The index of the slot.
+	 * @param width
+	 *            The width of the slot.
+	 * @param height
+	 *            The height of the slot.
+	 * @param baseline
+	 *            The baseline of the slot or -1 if it has none.
+	 */
+	void setSlotSize(int slot, int width, int height, int baseline)
+	{
+		mWidths[slot] = width;
+		mHeights[slot] = height;
+		mBaselines[slot] = baseline;
+		mMetricsDirty = true;
+	}
+
+
+	/**
+	 * Give a slot the size of another slot. This is used as an estimate for slots that have not been measured yet.
+	 */
+	void copySlotSize(int slot, int fromSlot)
+	{
+		setSlotSize(slot, mWidths[fromSlot], mHeights[fromSlot], mBaselines[fromSlot]);
+	}
+
+
+	int getWidth(int slot)
+	{
+		return mWidths[slot];
+	}
+
+
+	int getHeight(int slot)
+	{
+		return mHeights[slot];
+	}
+
+
+	int getLeft(int slot)
+	{
+		return mLefts[slot];
+	}
+
+
+	int getTop(int slot)
+	{
+		return mTops[slot];
+	}
+
+
+	/**
+	 * Returns the right edge of a slot. Like the other edges this is the result of the last layout pass, so it doesn't change when the slot is measured
+	 * again. This allows to invalidate the old bounds of a slot after it has been measured.
+	 */
+	int getRight(int slot)
+	{
+		return mRights[slot];
+	}
+
+
+	/**
+	 * Returns the bottom edge of a slot as of the last layout pass.
+	 */
+	int getBottom(int slot)
+	{
+		return mBottoms[slot];
+	}
+
+
+	/**
+	 * Returns the alpha value of a slot. Slots that are partially outside of the padded area fade out, slots outside of the strip have an alpha of 0.
+	 */
+	float getAlpha(int slot)
+	{
+		return mAlphas[slot];
+	}
+
+
+	/**
+	 * Returns the maximum height of all slots, aligned at their baselines.
+	 */
+	int getMaxHeight()
+	{
+		if (mMetricsDirty)
+		{
+			updateMetrics();
+		}
+		return mMaxHeight;
+	}
+
+
+	/**
+	 * Empty the dirty region.
+	 */
+	void clearDirtyRegion()
+	{
+		mDirtyLeft = mDirtyTop = Integer.MAX_VALUE;
+		mDirtyRight = mDirtyBottom = Integer.MIN_VALUE;
+	}
+
+
+	/**
+	 * Add the bounds of all visible slots as of the last layout pass to the dirty region. Call this before and after a layout pass to get the region that has
+	 * to be redrawn, slots that have been measured again in between still contribute their old bounds.
+	 */
+	void addVisibleSlotsToDirtyRegion()
+	{
+		final int[] lefts = mLefts;
+		final int[] tops = mTops;
+		final int[] rights = mRights;
+		final int[] bottoms = mBottoms;
+		final float[] alphas = mAlphas;
+		for (int i = 0, l = mSlotCount; i < l; ++i)
+		{
+			if (alphas[i] > 0 && rights[i] > lefts[i] && bottoms[i] > tops[i])
+			{
+				mDirtyLeft = Math.min(mDirtyLeft, lefts[i]);
+				mDirtyTop = Math.min(mDirtyTop, tops[i]);
+				mDirtyRight = Math.max(mDirtyRight, rights[i]);
+				mDirtyBottom = Math.max(mDirtyBottom, bottoms[i]);
+			}
+		}
+	}
+
+
+	boolean isDirtyRegionEmpty()
+	{
+		return mDirtyLeft >= mDirtyRight || mDirtyTop >= mDirtyBottom;
+	}
+
+
+	int getDirtyLeft()
+	{
+		return mDirtyLeft;
+	}
+
+
+	int getDirtyTop()
+	{
+		return mDirtyTop;
+	}
+
+
+	int getDirtyRight()
+	{
+		return mDirtyRight;
+	}
+
+
+	int getDirtyBottom()
+	{
+		return mDirtyBottom;
+	}
+
+
+	/**
+	 * Position all slots. The title of the current page is centered and moves with the pager, the other titles are placed to the left and to the right of it.
+	 * At an offset of 1 the title to the right of the current one is centered exactly, even if the titles have different widths.
+	 *
+	 * @param stripWidth
+	 *            The width of the strip.
+	 * @param stripHeight
+	 *            The height of the strip.
+	 * @param paddingLeft
+	 *            The left padding of the strip.
+	 * @param paddingTop
+	 *            The top padding of the strip.
+	 * @param paddingRight
+	 *            The right padding of the strip.
+	 * @param paddingBottom
+	 *            The bottom padding of the strip.
+	 * @param spacing
+	 *            The horizontal space between two titles.
+	 * @param gravity
+	 *            One of {@link #GRAVITY_TOP}, {@link #GRAVITY_CENTER_VERTICAL} or {@link #GRAVITY_BOTTOM}.
+	 * @param positionOffset
+	 *            How far the title of the current page has been moved to the left, in pages. Negative values move it to the right.
+	 */
+	void layout(int stripWidth, int stripHeight, int paddingLeft, int paddingTop, int paddingRight, int paddingBottom, int spacing, int gravity,
+		float positionOffset)
+	{
+		final int slotCount = mSlotCount;
+		if (slotCount == 0)
+		{
+			return;
+		}
+
+		final int[] widths = mWidths;
+		final int[] baselines = mBaselines;
+
+		if (mMetricsDirty)
+		{
+			updateMetrics();
+		}
+		final int maxBaseline = mMaxBaseline;
+
+		// the top of the titles with the largest baseline
+		final int baseTop;
+		switch (gravity)
+		{
+			default:
+			case GRAVITY_TOP:
+				baseTop = paddingTop;
+				break;
+			case GRAVITY_CENTER_VERTICAL:
+				baseTop = (stripHeight - paddingTop - paddingBottom - mMaxHeight) / 2;
+				break;
+			case GRAVITY_BOTTOM:
+				baseTop = stripHeight - paddingBottom - mMaxHeight;
+				break;
+		}
+
+		// the distance between the centers of the current title and the title it's moving towards
+		final int half = slotCount / 2;
+		final int centerSlot = slotIndex(half);
+		final int neighbor = positionOffset >= 0 ? half + 1 : half - 1;
+		final int neighborWidth = neighbor >= 0 && neighbor < slotCount ? widths[slotIndex(neighbor)] : widths[centerSlot];
+		final float pitch = (widths[centerSlot] + neighborWidth) / 2f + spacing;
+
+		final int currCenter = stripWidth / 2 - (int) (pitch * positionOffset);
+		final int currLeft = currCenter - widths[centerSlot] / 2;
+
+		// lay out the center title and the titles to its right
+		int left = currLeft;
+		for (int j = slotCount / 2; j < slotCount; ++j)
+		{
+			final int i = slotIndex(j);
+			final int width = widths[i];
+			final int right = left + width;
+			final float alpha = stripWidth - right < paddingRight ? 1 - ((float) (right + paddingRight - stripWidth)) / width : 1f;
+			setSlotPosition(i, left, baseTop + maxBaseline - baselines[i], alpha);
+			left = right + spacing;
+		}
+
+		// lay out the titles to the left of the center title
+		left = currLeft;
+		for (int j = slotCount / 2 - 1; j >= 0; --j)
+		{
+			final int i = slotIndex(j);
+			final int width = widths[i];
+			left -= width + spacing;
+			final float alpha = left < paddingLeft ? 1 - ((float) (paddingLeft - left)) / width : 1f;
+			setSlotPosition(i, left, baseTop + maxBaseline - baselines[i], alpha);
+		}
+	}
+
+
+	private void setSlotPosition(int slot, int left, int top, float alpha)
+	{
+		mLefts[slot] = left;
+		mTops[slot] = top;
+		mRights[slot] = left + mWidths[slot];
+		mBottoms[slot] = top + mHeights[slot];
+		mAlphas[slot] = alpha > 0f ? Math.min(1f, alpha) : 0f; // this also takes care of NaN
+	}
+
+
+	/**
+	 * Update the cached maximum baseline and the maximum height of the slots relative to that baseline.
+	 */
+	private void updateMetrics()
+	{
+		final int[] heights = mHeights;
+		final int[] baselines = mBaselines;
+
+		int maxBaseline = 0;
+		for (int i = 0, l = mSlotCount; i < l; ++i)
+		{
+			maxBaseline = Math.max(maxBaseline, baselines[i]);
+		}
+
+		int maxHeight = 0;
+		for (int i = 0, l = mSlotCount; i < l; ++i)
+		{
+			maxHeight = Math.max(maxHeight, maxBaseline - baselines[i] + heights[i]);
+		}
+
+		mMaxBaseline = maxBaseline;
+		mMaxHeight = maxHeight;
+		mMetricsDirty = false;
+	}
+}
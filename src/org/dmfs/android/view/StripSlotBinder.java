@@ -0,0 +1,471 @@
+/*
+ * Copyright (C) 2014 Marten Gajda <marten@dmfs.org>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dmfs.android.view;
+
+/**
+ * Decides which slots of a {@link DrawablePagerTitleStrip} show which positions and when they are bound. Like {@link StripLayoutEngine} this doesn't depend on
+ * any Android classes, the actual binding and measuring of a slot is left to a {@link Callback}.
+ * <p>
+ * When the current page changes the ring of slots is rotated and the slots entering it are deferred. A deferred slot is bound only once a layout pass finds
+ * it visible, so slots that stay outside of the strip are never bound, measured or drawn.
+ * </p>
+ * <p>
+ * All slot arrays are allocated when the slot count changes, moving and laying out the slots doesn't allocate anything.
+ * </p>
+ *
+ * @author Marten Gajda <marten@dmfs.org>
+ */
+final class StripSlotBinder
+{
+	/**
+	 * Binds and measures the slots on behalf of a {@link StripSlotBinder}.
+	 */
+	interface Callback
+	{
+		/**
+		 * Returns the number of positions.
+		 */
+		int getCount();
+
+
+		/**
+		 * Returns whether the titles have stable ids, see {@link #getTitleId(int)}.
+		 */
+		boolean hasStableIds();
+
+
+		/**
+		 * Returns the id of the title of the given position. This is only called if {@link #hasStableIds()} returns <code>true</code>.
+		 */
+		long getTitleId(int position);
+
+
+		/**
+		 * Returns whether slots that are bound now may show a preview of their title.
+		 */
+		boolean isPreviewing();
+
+
+		/**
+		 * Bind the title of the given position to a slot. The slot still has its old position at this point, so the title it showed before can be released.
+		 *
+		 * @param slot
+		 *            The index of the slot.
+		 * @param position
+		 *            The position of the title or -1 to clear the slot.
+		 * @return <code>true</code> if the slot shows its final title, <code>false</code> if it shows a placeholder.
+		 */
+		boolean bindTitle(int slot, int position);
+
+
+		/**
+		 * Bind the label of the position the given slot shows.
+		 *
+		 * @return <code>true</code> if the slot shows a different label now.
+		 */
+		boolean bindLabel(int slot);
+
+
+		/**
+		 * Measure the given slot and pass its size to the {@link StripLayoutEngine}.
+		 */
+		void measureSlot(int slot);
+	}
+
+	private final StripLayoutEngine mEngine;
+	private final Callback mCallback;
+
+	private int mSlotCount;
+
+	/**
+	 * The positions shown by the slots, -1 if a slot doesn't show anything.
+	 */
+	private int[] mPositions = new int[0];
+
+	/**
+	 * Whether a slot is bound to the position in {@link #mPositions} and, if the titles have stable ids, to the title id in {@link #mIds}.
+	 */
+	private boolean[] mBound = new boolean[0];
+	private long[] mIds = new long[0];
+
+	/**
+	 * Whether binding a slot has been deferred until it becomes visible. A deferred slot still holds the title of the position it showed before, but it's not
+	 * drawn.
+	 */
+	private boolean[] mDeferred = new boolean[0];
+	private boolean mHasDeferred;
+
+	/**
+	 * Whether a slot shows a preview that's replaced once the pager is idle.
+	 */
+	private boolean[] mPreview = new boolean[0];
+
+	/**
+	 * The position of the title in the center slot, -1 if the slots have not been bound yet.
+	 */
+	private int mCurrentPage = -1;
+
+
+	StripSlotBinder(StripLayoutEngine engine, Callback callback)
+	{
+		mEngine = engine;
+		mCallback = callback;
+	}
+
+
+	/**
+	 * Set the number of slots. This resets the ring and clears all slots.
+	 */
+	void setSlotCount(int count)
+	{
+		mEngine.setSlotCount(count);
+		if (count != mSlotCount)
+		{
+			mPositions = new int[count];
+			mBound = new boolean[count];
+			mIds = new long[count];
+			mDeferred = new boolean[count];
+			mPreview = new boolean[count];
+			mSlotCount = count;
+		}
+		for (int i = 0; i < count; ++i)
+		{
+			mPositions[i] = -1;
+			mPreview[i] = false;
+		}
+		unbind();
+		mCurrentPage = -1;
+	}
+
+
+	int getSlotCount()
+	{
+		return mSlotCount;
+	}
+
+
+	/**
+	 * Returns the index of the slot with the given logical index, see {@link StripLayoutEngine#slotIndex(int)}.
+	 */
+	int slotIndex(int logicalIndex)
+	{
+		return mEngine.slotIndex(logicalIndex);
+	}
+
+
+	/**
+	 * Returns the position of the title in the center slot, -1 if the slots have not been bound since the slot count has been set.
+	 */
+	int getCurrentPage()
+	{
+		return mCurrentPage;
+	}
+
+
+	/**
+	 * Returns the position shown by the given slot or -1 if it doesn't show anything.
+	 */
+	int getPosition(int slot)
+	{
+		return mPositions[slot];
+	}
+
+
+	/**
+	 * Returns whether binding the given slot has been deferred until it becomes visible.
+	 */
+	boolean isDeferred(int slot)
+	{
+		return mDeferred[slot];
+	}
+
+
+	/**
+	 * Mark the given slot as bound to its final title or, if <code>bound</code> is <code>false</code>, to be rebound the next time it's updated.
+	 */
+	void setBound(int slot, boolean bound)
+	{
+		mBound[slot] = bound;
+	}
+
+
+	boolean isPreview(int slot)
+	{
+		return mPreview[slot];
+	}
+
+
+	void setPreview(int slot, boolean preview)
+	{
+		mPreview[slot] = preview;
+	}
+
+
+	/**
+	 * Force all slots to be rebound on the next update, even if the ids of their titles didn't change.
+	 */
+	void unbind()
+	{
+		for (int i = 0, l = mSlotCount; i < l; ++i)
+		{
+			mBound[i] = false;
+			mDeferred[i] = false;
+		}
+		mHasDeferred = false;
+	}
+
+
+	/**
+	 * Rebind all slots to the titles around the given position. Only the title of the current position is bound right away, all other slots that show a
+	 * different title now are deferred. Slots that show the same title id are not rebound.
+	 *
+	 * @return <code>true</code> if any slot has been rebound, deferred or measured again, i.e. if the slots need to be laid out again.
+	 */
+	boolean update(int currentItem)
+	{
+		final int slotCount = mSlotCount;
+		final int half = slotCount / 2;
+		boolean changed = bind(currentItem, half, half + 1, false);
+		if (slotCount < 2)
+		{
+			return changed;
+		}
+
+		final Callback callback = mCallback;
+		final boolean stable = callback.hasStableIds();
+		final boolean previewing = callback.isPreviewing();
+		final int itemCount = callback.getCount();
+		for (int i = 0; i < slotCount; ++i)
+		{
+			final int slot = slotIndex(i);
+			if (i == half || mDeferred[slot])
+			{
+				// deferred slots are bound to the right position anyway
+				continue;
+			}
+
+			final int position = currentItem + (i - half);
+			final boolean valid = position >= 0 && position < itemCount;
+			final long id = valid && stable ? callback.getTitleId(position) : 0;
+			if (isCurrent(slot, valid ? position : -1, id, stable, previewing, false))
+			{
+				// the slot already shows this title, but the label might have changed
+				mPositions[slot] = valid ? position : -1;
+				if (callback.bindLabel(slot))
+				{
+					callback.measureSlot(slot);
+					changed = true;
+				}
+			}
+			else
+			{
+				defer(slot);
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+
+	/**
+	 * Move the slots to the titles around the given position. The slots are rotated, so only the slots that enter the strip at either end need to be rebound,
+	 * all other slots keep their titles and measurements. The entering slots are deferred, so the ones that stay outside of the strip are never bound.
+	 */
+	void shift(int currentItem)
+	{
+		final int slotCount = mSlotCount;
+		if (slotCount == 0)
+		{
+			return;
+		}
+
+		final int delta = currentItem - mCurrentPage;
+		if (mCurrentPage < 0 || Math.abs(delta) >= slotCount)
+		{
+			// nothing to reuse
+			update(currentItem);
+			return;
+		}
+
+		mEngine.rotate(delta);
+
+		final int first = delta > 0 ? slotCount - delta : 0;
+		final int last = delta > 0 ? slotCount : -delta;
+		for (int i = first; i < last; ++i)
+		{
+			defer(slotIndex(i));
+		}
+		mCurrentPage = currentItem;
+	}
+
+
+	/**
+	 * Bind and measure the slots with the logical indices from <code>first</code> (inclusive) to <code>last</code> (exclusive). If <code>keepBound</code> is
+	 * <code>true</code> bound slots that already show the right position are not rebound, even if the titles don't have stable ids.
+	 *
+	 * @return <code>true</code> if any slot has been rebound or measured again.
+	 */
+	boolean bind(int currentItem, int first, int last, boolean keepBound)
+	{
+		if (mSlotCount == 0)
+		{
+			return false;
+		}
+
+		final Callback callback = mCallback;
+		final boolean stable = callback.hasStableIds();
+		final boolean previewing = callback.isPreviewing();
+		final int itemCount = callback.getCount();
+		final int half = mSlotCount / 2;
+		boolean changed = false;
+		for (int i = first; i < last; ++i)
+		{
+			final int slot = slotIndex(i);
+			final int position = currentItem + (i - half);
+			mDeferred[slot] = false;
+			final boolean valid = position >= 0 && position < itemCount;
+			final long id = valid && stable ? callback.getTitleId(position) : 0;
+
+			if (isCurrent(slot, valid ? position : -1, id, stable, previewing, keepBound))
+			{
+				// the slot already shows this title, but the label might have changed
+				mPositions[slot] = valid ? position : -1;
+				if (callback.bindLabel(slot))
+				{
+					callback.measureSlot(slot);
+					changed = true;
+				}
+				continue;
+			}
+
+			// bind the title first, so the old one is released with its old position
+			final boolean bound = callback.bindTitle(slot, valid ? position : -1);
+			mPositions[slot] = valid ? position : -1;
+			mIds[slot] = id;
+			callback.bindLabel(slot);
+			// a slot that shows a placeholder is not bound to its final title yet
+			mBound[slot] = !valid || bound;
+			callback.measureSlot(slot);
+			changed = true;
+		}
+
+		mCurrentPage = currentItem;
+		return changed;
+	}
+
+
+	/**
+	 * Lay out the slots and bind the deferred slots that turn out to be visible. Binding a slot measures it, which moves the slots next to it, so the slots are
+	 * laid out again until no more deferred slots become visible. See {@link StripLayoutEngine#layout(int, int, int, int, int, int, int, int, float)} for the
+	 * parameters.
+	 *
+	 * @return The number of layout passes.
+	 */
+	int layout(int stripWidth, int stripHeight, int paddingLeft, int paddingTop, int paddingRight, int paddingBottom, int spacing, int gravity,
+		float positionOffset)
+	{
+		final StripLayoutEngine engine = mEngine;
+		engine.layout(stripWidth, stripHeight, paddingLeft, paddingTop, paddingRight, paddingBottom, spacing, gravity, positionOffset);
+		int passes = 1;
+		while (bindVisibleSlots())
+		{
+			engine.layout(stripWidth, stripHeight, paddingLeft, paddingTop, paddingRight, paddingBottom, spacing, gravity, positionOffset);
+			++passes;
+		}
+		return passes;
+	}
+
+
+	/**
+	 * Mark the given slot to be bound once it becomes visible. Until then the slot keeps its old size, a slot that has never been measured gets the size of
+	 * the current title, so the layout can tell whether it's visible.
+	 */
+	private void defer(int slot)
+	{
+		mDeferred[slot] = true;
+		mHasDeferred = true;
+		if (mEngine.getWidth(slot) == 0)
+		{
+			mEngine.copySlotSize(slot, mEngine.centerSlot());
+		}
+	}
+
+
+	/**
+	 * Bind the deferred slots that are visible in the current layout.
+	 *
+	 * @return <code>true</code> if any slot has been bound.
+	 */
+	private boolean bindVisibleSlots()
+	{
+		if (!mHasDeferred)
+		{
+			return false;
+		}
+
+		boolean bound = false;
+		boolean remaining = false;
+		for (int i = 0, l = mSlotCount; i < l; ++i)
+		{
+			final int slot = slotIndex(i);
+			if (mDeferred[slot])
+			{
+				if (mEngine.getAlpha(slot) <= 0)
+				{
+					remaining = true;
+					continue;
+				}
+				bind(mCurrentPage, i, i + 1, false);
+				bound = true;
+			}
+		}
+		mHasDeferred = remaining;
+		return bound;
+	}
+
+
+	/**
+	 * Returns whether the given slot is bound to the title of the given position, so it doesn't need to be rebound.
+	 *
+	 * @param position
+	 *            The position the slot has to show or -1 if the slot has to be empty.
+	 * @param id
+	 *            The title id of the position, if the titles have stable ids.
+	 * @param stable
+	 *            Whether the titles have stable ids.
+	 * @param previewing
+	 *            Whether the slot may keep showing a preview.
+	 * @param keepBound
+	 *            Whether a slot that shows the same position is kept, even if the titles don't have stable ids.
+	 */
+	private boolean isCurrent(int slot, int position, long id, boolean stable, boolean previewing, boolean keepBound)
+	{
+		if (!mBound[slot] || mPreview[slot] && !previewing)
+		{
+			// previews are replaced once the pager is idle
+			return false;
+		}
+		if (position < 0)
+		{
+			return mPositions[slot] < 0;
+		}
+		if (stable)
+		{
+			return mPositions[slot] >= 0 && mIds[slot] == id;
+		}
+		return keepBound && mPositions[slot] == position;
+	}
+}
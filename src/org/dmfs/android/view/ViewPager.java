@@ -16,10 +16,12 @@
 
 package org.dmfs.android.view;
 
+import java.lang.reflect.Array;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.res.Resources;
@@ -112,12 +114,17 @@ public class ViewPager extends ViewGroup {
      */
     private int mExpectedAdapterCount;
 
+    // The item pool holds at least this many items, more if the offscreen page limit is higher.
+    private static final int MIN_ITEM_POOL_SIZE = 8;
+
     static class ItemInfo {
         Object object;
         int position;
         boolean scrolling;
         float widthFactor;
         float offset;
+        // The child view that has been found for this item by infoForChild, if any.
+        View child;
     }
 
     private static final Comparator<ItemInfo> COMPARATOR = new Comparator<ItemInfo>(){
@@ -136,6 +143,19 @@ public class ViewPager extends ViewGroup {
 
     private final ArrayList<ItemInfo> mItems = new ArrayList<ItemInfo>();
     private final ItemInfo mTempItem = new ItemInfo();
+    private final PageWidths mPageWidths = new PageWidths() {
+        @Override
+        public float getPageWidth(int position) {
+            return mAdapter.getPageWidth(position);
+        }
+    };
+    // Items that have been removed from mItems, reused by addNewItem. It can hold all the items
+    // of the offscreen page limit, so jumping to a distant page doesn't allocate any items.
+    private ItemInfo[] mItemPool = new ItemInfo[MIN_ITEM_POOL_SIZE];
+    private int mItemPoolSize;
+    // Maps the child views that have been looked up by infoForChild to their items.
+    // Items remove themselves when they're removed from mItems.
+    private final IdentityHashMap<View, ItemInfo> mChildInfos = new IdentityHashMap<View, ItemInfo>();
 
     private final Rect mTempRect = new Rect();
 
@@ -216,9 +236,15 @@ public class ViewPager extends ViewGroup {
     private boolean mCalledSuper;
     private int mDecorChildCount;
 
+    private static final OnPageChangeListener[] NO_PAGE_CHANGE_LISTENERS = new OnPageChangeListener[0];
+    private static final OnAdapterChangeListener[] NO_ADAPTER_CHANGE_LISTENERS = new OnAdapterChangeListener[0];
+
     private OnPageChangeListener mOnPageChangeListener;
-    private OnPageChangeListener mInternalPageChangeListener;
-    private OnAdapterChangeListener mAdapterChangeListener;
+    // The listener arrays are copied on write, so dispatching doesn't allocate anything and
+    // listeners may add or remove listeners while being notified.
+    private OnPageChangeListener[] mOnPageChangeListeners = NO_PAGE_CHANGE_LISTENERS;
+    private OnPageChangeListener[] mInternalPageChangeListeners = NO_PAGE_CHANGE_LISTENERS;
+    private OnAdapterChangeListener[] mAdapterChangeListeners = NO_ADAPTER_CHANGE_LISTENERS;
     private PageTransformer mPageTransformer;
     private Method mSetChildrenDrawingOrderEnabled;
 
@@ -347,6 +373,15 @@ public class ViewPager extends ViewGroup {
      */
     interface Decor {}
 
+    /**
+     * Provides the width factors of pages, see {@link PagerAdapter#getPageWidth(int)}.
+     * Used by the static helpers that compute the page offsets, so they don't depend
+     * on an adapter.
+     */
+    interface PageWidths {
+        public float getPageWidth(int position);
+    }
+
     public ViewPager(Context context) {
         super(context);
         initViewPager();
@@ -401,9 +436,7 @@ public class ViewPager extends ViewGroup {
             // PageTransformers can do complex things that benefit from hardware layers.
             enableLayers(newState != SCROLL_STATE_IDLE);
         }
-        if (mOnPageChangeListener != null) {
-            mOnPageChangeListener.onPageScrollStateChanged(newState);
-        }
+        dispatchOnPageScrollStateChanged(newState);
     }
 
     /**
@@ -420,6 +453,10 @@ public class ViewPager extends ViewGroup {
                 mAdapter.destroyItem(this, ii.position, ii.object);
             }
             mAdapter.finishUpdate(this);
+            mChildInfos.clear();
+            for (int i = 0; i < mItems.size(); i++) {
+                recycleItem(mItems.get(i));
+            }
             mItems.clear();
             removeNonDecorViews();
             mCurItem = 0;
@@ -452,8 +489,11 @@ public class ViewPager extends ViewGroup {
             }
         }
 
-        if (mAdapterChangeListener != null && oldAdapter != adapter) {
-            mAdapterChangeListener.onAdapterChanged(oldAdapter, adapter);
+        if (oldAdapter != adapter) {
+            final OnAdapterChangeListener[] listeners = mAdapterChangeListeners;
+            for (int i = 0; i < listeners.length; i++) {
+                listeners[i].onAdapterChanged(oldAdapter, adapter);
+            }
         }
     }
 
@@ -477,8 +517,12 @@ public class ViewPager extends ViewGroup {
         return mAdapter;
     }
 
-    void setOnAdapterChangeListener(OnAdapterChangeListener listener) {
-        mAdapterChangeListener = listener;
+    void addOnAdapterChangeListener(OnAdapterChangeListener listener) {
+        mAdapterChangeListeners = addListener(mAdapterChangeListeners, listener);
+    }
+
+    void removeOnAdapterChangeListener(OnAdapterChangeListener listener) {
+        mAdapterChangeListeners = removeListener(mAdapterChangeListeners, listener);
     }
 
     private int getClientWidth() {
@@ -546,11 +590,8 @@ public class ViewPager extends ViewGroup {
             // We don't have any idea how big we are yet and shouldn't have any pages either.
             // Just set things up and let the pending layout handle things.
             mCurItem = item;
-            if (dispatchSelected && mOnPageChangeListener != null) {
-                mOnPageChangeListener.onPageSelected(item);
-            }
-            if (dispatchSelected && mInternalPageChangeListener != null) {
-                mInternalPageChangeListener.onPageSelected(item);
+            if (dispatchSelected) {
+                dispatchOnPageSelected(item);
             }
             requestLayout();
         } else {
@@ -570,18 +611,12 @@ public class ViewPager extends ViewGroup {
         }
         if (smoothScroll) {
             smoothScrollTo(destX, 0, velocity);
-            if (dispatchSelected && mOnPageChangeListener != null) {
-                mOnPageChangeListener.onPageSelected(item);
-            }
-            if (dispatchSelected && mInternalPageChangeListener != null) {
-                mInternalPageChangeListener.onPageSelected(item);
+            if (dispatchSelected) {
+                dispatchOnPageSelected(item);
             }
         } else {
-            if (dispatchSelected && mOnPageChangeListener != null) {
-                mOnPageChangeListener.onPageSelected(item);
-            }
-            if (dispatchSelected && mInternalPageChangeListener != null) {
-                mInternalPageChangeListener.onPageSelected(item);
+            if (dispatchSelected) {
+                dispatchOnPageSelected(item);
             }
             completeScroll(false);
             scrollTo(destX, 0);
@@ -599,6 +634,26 @@ public class ViewPager extends ViewGroup {
         mOnPageChangeListener = listener;
     }
 
+    /**
+     * Add a listener that will be invoked whenever the page changes or is incrementally
+     * scrolled. Unlike {@link #setOnPageChangeListener(OnPageChangeListener)} this doesn't
+     * replace any other listener. Adding the same listener twice has no effect.
+     *
+     * @param listener Listener to add
+     */
+    public void addOnPageChangeListener(OnPageChangeListener listener) {
+        mOnPageChangeListeners = addListener(mOnPageChangeListeners, listener);
+    }
+
+    /**
+     * Remove a listener that has been added by {@link #addOnPageChangeListener(OnPageChangeListener)}.
+     *
+     * @param listener Listener to remove
+     */
+    public void removeOnPageChangeListener(OnPageChangeListener listener) {
+        mOnPageChangeListeners = removeListener(mOnPageChangeListeners, listener);
+    }
+
     /**
      * Set a {@link PageTransformer} that will be called for each attached page whenever
      * the scroll position is changed. This allows the application to apply custom property
@@ -652,15 +707,104 @@ public class ViewPager extends ViewGroup {
     }
 
     /**
-     * Set a separate OnPageChangeListener for internal use by the support library.
+     * Add a separate OnPageChangeListener for internal use by the decor views. Internal
+     * listeners are notified after the public ones.
      *
-     * @param listener Listener to set
-     * @return The old listener that was set, if any.
+     * @param listener Listener to add
      */
-    OnPageChangeListener setInternalPageChangeListener(OnPageChangeListener listener) {
-        OnPageChangeListener oldListener = mInternalPageChangeListener;
-        mInternalPageChangeListener = listener;
-        return oldListener;
+    void addInternalPageChangeListener(OnPageChangeListener listener) {
+        mInternalPageChangeListeners = addListener(mInternalPageChangeListeners, listener);
+    }
+
+    /**
+     * Remove a listener that has been added by
+     * {@link #addInternalPageChangeListener(OnPageChangeListener)}.
+     *
+     * @param listener Listener to remove
+     */
+    void removeInternalPageChangeListener(OnPageChangeListener listener) {
+        mInternalPageChangeListeners = removeListener(mInternalPageChangeListeners, listener);
+    }
+
+    /**
+     * Returns a copy of the given listener array with the given listener appended, or the
+     * array itself if it contains the listener already. The arrays are never modified, so
+     * they can be iterated while listeners add or remove themselves.
+     */
+    private static <T> T[] addListener(T[] listeners, T listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                return listeners;
+            }
+        }
+        final T[] newListeners = newListenerArray(listeners, listeners.length + 1);
+        System.arraycopy(listeners, 0, newListeners, 0, listeners.length);
+        newListeners[listeners.length] = listener;
+        return newListeners;
+    }
+
+    /**
+     * Returns a copy of the given listener array without the given listener, or the array
+     * itself if it doesn't contain the listener.
+     */
+    private static <T> T[] removeListener(T[] listeners, T listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                final T[] newListeners = newListenerArray(listeners, listeners.length - 1);
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                return newListeners;
+            }
+        }
+        return listeners;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T[] newListenerArray(T[] listeners, int length) {
+        // Arrays.copyOf needs API level 9
+        return (T[]) Array.newInstance(listeners.getClass().getComponentType(), length);
+    }
+
+    private void dispatchOnPageScrolled(int position, float offset, int offsetPixels) {
+        if (mOnPageChangeListener != null) {
+            mOnPageChangeListener.onPageScrolled(position, offset, offsetPixels);
+        }
+        OnPageChangeListener[] listeners = mOnPageChangeListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i].onPageScrolled(position, offset, offsetPixels);
+        }
+        listeners = mInternalPageChangeListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i].onPageScrolled(position, offset, offsetPixels);
+        }
+    }
+
+    private void dispatchOnPageSelected(int position) {
+        if (mOnPageChangeListener != null) {
+            mOnPageChangeListener.onPageSelected(position);
+        }
+        OnPageChangeListener[] listeners = mOnPageChangeListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i].onPageSelected(position);
+        }
+        listeners = mInternalPageChangeListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i].onPageSelected(position);
+        }
+    }
+
+    private void dispatchOnPageScrollStateChanged(int state) {
+        if (mOnPageChangeListener != null) {
+            mOnPageChangeListener.onPageScrollStateChanged(state);
+        }
+        OnPageChangeListener[] listeners = mOnPageChangeListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i].onPageScrollStateChanged(state);
+        }
+        listeners = mInternalPageChangeListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i].onPageScrollStateChanged(state);
+        }
     }
 
     /**
@@ -699,6 +843,7 @@ public class ViewPager extends ViewGroup {
         }
         if (limit != mOffscreenPageLimit) {
             mOffscreenPageLimit = limit;
+            resizeItemPool(Math.max(MIN_ITEM_POOL_SIZE, 2 * limit + 1));
             populate();
         }
     }
@@ -834,7 +979,7 @@ public class ViewPager extends ViewGroup {
     }
 
     ItemInfo addNewItem(int position, int index) {
-        ItemInfo ii = new ItemInfo();
+        ItemInfo ii = obtainItem();
         ii.position = position;
         ii.object = mAdapter.instantiateItem(this, position);
         ii.widthFactor = mAdapter.getPageWidth(position);
@@ -846,6 +991,44 @@ public class ViewPager extends ViewGroup {
         return ii;
     }
 
+    private ItemInfo obtainItem() {
+        if (mItemPoolSize > 0) {
+            final ItemInfo ii = mItemPool[--mItemPoolSize];
+            mItemPool[mItemPoolSize] = null;
+            return ii;
+        }
+        return new ItemInfo();
+    }
+
+    /**
+     * Put an item that has been removed from mItems into the pool. The item must not be used
+     * afterwards.
+     */
+    private void recycleItem(ItemInfo ii) {
+        ii.object = null;
+        ii.position = 0;
+        ii.scrolling = false;
+        ii.widthFactor = 0.f;
+        ii.offset = 0.f;
+        ii.child = null;
+        if (mItemPoolSize < mItemPool.length) {
+            mItemPool[mItemPoolSize++] = ii;
+        }
+    }
+
+    /**
+     * Change the number of items the pool can hold, dropping the pooled items that don't fit.
+     */
+    private void resizeItemPool(int size) {
+        if (size == mItemPool.length) {
+            return;
+        }
+        final ItemInfo[] pool = new ItemInfo[size];
+        mItemPoolSize = Math.min(mItemPoolSize, size);
+        System.arraycopy(mItemPool, 0, pool, 0, mItemPoolSize);
+        mItemPool = pool;
+    }
+
     void dataSetChanged() {
         // This method only gets called if our observer is attached, so mAdapter is non-null.
 
@@ -866,6 +1049,7 @@ public class ViewPager extends ViewGroup {
 
             if (newPos == PagerAdapter.POSITION_NONE) {
                 mItems.remove(i);
+                forgetChild(ii);
                 i--;
 
                 if (!isUpdating) {
@@ -881,6 +1065,7 @@ public class ViewPager extends ViewGroup {
                     newCurrItem = Math.max(0, Math.min(mCurItem, adapterCount - 1));
                     needPopulate = true;
                 }
+                recycleItem(ii);
                 continue;
             }
 
@@ -923,6 +1108,8 @@ public class ViewPager extends ViewGroup {
 
     void populate(int newCurrentItem) {
         ItemInfo oldCurInfo = null;
+        // oldCurInfo is needed to calculate the new offsets, so it's recycled last.
+        boolean oldCurInfoRemoved = false;
         int focusDirection = View.FOCUS_FORWARD;
         if (mCurItem != newCurrentItem) {
             focusDirection = mCurItem < newCurrentItem ? View.FOCUS_RIGHT : View.FOCUS_LEFT;
@@ -1006,11 +1193,17 @@ public class ViewPager extends ViewGroup {
                     }
                     if (pos == ii.position && !ii.scrolling) {
                         mItems.remove(itemIndex);
+                        forgetChild(ii);
                         mAdapter.destroyItem(this, pos, ii.object);
                         if (DEBUG) {
                             Log.i(TAG, "populate() - destroyItem() with pos: " + pos +
                                     " view: " + ((View) ii.object));
                         }
+                        if (ii != oldCurInfo) {
+                            recycleItem(ii);
+                        } else {
+                            oldCurInfoRemoved = true;
+                        }
                         itemIndex--;
                         curIndex--;
                         ii = itemIndex >= 0 ? mItems.get(itemIndex) : null;
@@ -1040,11 +1233,17 @@ public class ViewPager extends ViewGroup {
                         }
                         if (pos == ii.position && !ii.scrolling) {
                             mItems.remove(itemIndex);
+                            forgetChild(ii);
                             mAdapter.destroyItem(this, pos, ii.object);
                             if (DEBUG) {
                                 Log.i(TAG, "populate() - destroyItem() with pos: " + pos +
                                         " view: " + ((View) ii.object));
                             }
+                            if (ii != oldCurInfo) {
+                                recycleItem(ii);
+                            } else {
+                                oldCurInfoRemoved = true;
+                            }
                             ii = itemIndex < mItems.size() ? mItems.get(itemIndex) : null;
                         }
                     } else if (ii != null && pos == ii.position) {
@@ -1061,6 +1260,9 @@ public class ViewPager extends ViewGroup {
             }
 
             calculatePageOffsets(curItem, curIndex, oldCurInfo);
+            if (oldCurInfoRemoved) {
+                recycleItem(oldCurInfo);
+            }
         }
 
         if (DEBUG) {
@@ -1129,6 +1331,25 @@ public class ViewPager extends ViewGroup {
         final int N = mAdapter.getCount();
         final int width = getClientWidth();
         final float marginOffset = width > 0 ? (float) mPageMargin / width : 0;
+        calculatePageOffsets(mItems, mPageWidths, curItem, curIndex, oldCurInfo, marginOffset);
+
+        // The first and the last page limit the scroll range once they are populated.
+        final ItemInfo firstItem = mItems.get(0);
+        final ItemInfo lastItem = mItems.get(mItems.size() - 1);
+        mFirstOffset = firstItem.position == 0 ? firstItem.offset : -Float.MAX_VALUE;
+        mLastOffset = lastItem.position == N - 1 ?
+                lastItem.offset + lastItem.widthFactor - 1 : Float.MAX_VALUE;
+
+        mNeedCalculatePageOffsets = false;
+    }
+
+    /**
+     * Computes the offsets of the given items around curItem, which is the item at curIndex.
+     * If oldCurInfo is given, the offsets are based on the offset of that item. Pages in
+     * between that don't have an item are measured by widths.
+     */
+    static void calculatePageOffsets(ArrayList<ItemInfo> items, PageWidths widths,
+            ItemInfo curItem, int curIndex, ItemInfo oldCurInfo, float marginOffset) {
         // Fix up offsets for later layout.
         if (oldCurInfo != null) {
             final int oldCurPosition = oldCurInfo.position;
@@ -1138,36 +1359,36 @@ public class ViewPager extends ViewGroup {
                 ItemInfo ii = null;
                 float offset = oldCurInfo.offset + oldCurInfo.widthFactor + marginOffset;
                 for (int pos = oldCurPosition + 1;
-                        pos <= curItem.position && itemIndex < mItems.size(); pos++) {
-                    ii = mItems.get(itemIndex);
-                    while (pos > ii.position && itemIndex < mItems.size() - 1) {
+                        pos <= curItem.position && itemIndex < items.size(); pos++) {
+                    ii = items.get(itemIndex);
+                    while (pos > ii.position && itemIndex < items.size() - 1) {
                         itemIndex++;
-                        ii = mItems.get(itemIndex);
+                        ii = items.get(itemIndex);
                     }
                     while (pos < ii.position) {
                         // We don't have an item populated for this,
                         // ask the adapter for an offset.
-                        offset += mAdapter.getPageWidth(pos) + marginOffset;
+                        offset += widths.getPageWidth(pos) + marginOffset;
                         pos++;
                     }
                     ii.offset = offset;
                     offset += ii.widthFactor + marginOffset;
                 }
             } else if (oldCurPosition > curItem.position) {
-                int itemIndex = mItems.size() - 1;
+                int itemIndex = items.size() - 1;
                 ItemInfo ii = null;
                 float offset = oldCurInfo.offset;
                 for (int pos = oldCurPosition - 1;
                         pos >= curItem.position && itemIndex >= 0; pos--) {
-                    ii = mItems.get(itemIndex);
+                    ii = items.get(itemIndex);
                     while (pos < ii.position && itemIndex > 0) {
                         itemIndex--;
-                        ii = mItems.get(itemIndex);
+                        ii = items.get(itemIndex);
                     }
                     while (pos > ii.position) {
                         // We don't have an item populated for this,
                         // ask the adapter for an offset.
-                        offset -= mAdapter.getPageWidth(pos) + marginOffset;
+                        offset -= widths.getPageWidth(pos) + marginOffset;
                         pos--;
                     }
                     offset -= ii.widthFactor + marginOffset;
@@ -1177,38 +1398,29 @@ public class ViewPager extends ViewGroup {
         }
 
         // Base all offsets off of curItem.
-        final int itemCount = mItems.size();
+        final int itemCount = items.size();
         float offset = curItem.offset;
         int pos = curItem.position - 1;
-        mFirstOffset = curItem.position == 0 ? curItem.offset : -Float.MAX_VALUE;
-        mLastOffset = curItem.position == N - 1 ?
-                curItem.offset + curItem.widthFactor - 1 : Float.MAX_VALUE;
         // Previous pages
         for (int i = curIndex - 1; i >= 0; i--, pos--) {
-            final ItemInfo ii = mItems.get(i);
+            final ItemInfo ii = items.get(i);
             while (pos > ii.position) {
-                offset -= mAdapter.getPageWidth(pos--) + marginOffset;
+                offset -= widths.getPageWidth(pos--) + marginOffset;
             }
             offset -= ii.widthFactor + marginOffset;
             ii.offset = offset;
-            if (ii.position == 0) mFirstOffset = offset;
         }
         offset = curItem.offset + curItem.widthFactor + marginOffset;
         pos = curItem.position + 1;
         // Next pages
         for (int i = curIndex + 1; i < itemCount; i++, pos++) {
-            final ItemInfo ii = mItems.get(i);
+            final ItemInfo ii = items.get(i);
             while (pos < ii.position) {
-                offset += mAdapter.getPageWidth(pos++) + marginOffset;
-            }
-            if (ii.position == N - 1) {
-                mLastOffset = offset + ii.widthFactor - 1;
+                offset += widths.getPageWidth(pos++) + marginOffset;
             }
             ii.offset = offset;
             offset += ii.widthFactor + marginOffset;
         }
-
-        mNeedCalculatePageOffsets = false;
     }
 
     /**
@@ -1330,15 +1542,37 @@ public class ViewPager extends ViewGroup {
     }
 
     ItemInfo infoForChild(View child) {
+        ItemInfo ii = mChildInfos.get(child);
+        if (ii != null && mAdapter.isViewFromObject(child, ii.object)) {
+            return ii;
+        }
         for (int i=0; i<mItems.size(); i++) {
-            ItemInfo ii = mItems.get(i);
+            ii = mItems.get(i);
             if (mAdapter.isViewFromObject(child, ii.object)) {
+                // Remember the child, so the next lookup doesn't have to scan mItems.
+                if (ii.child != null && ii.child != child) {
+                    forgetChild(ii);
+                }
+                ii.child = child;
+                mChildInfos.put(child, ii);
                 return ii;
             }
         }
         return null;
     }
 
+    /**
+     * Remove the child of an item that's removed from mItems from the child index.
+     */
+    private void forgetChild(ItemInfo ii) {
+        if (ii.child != null) {
+            if (mChildInfos.get(ii.child) == ii) {
+                mChildInfos.remove(ii.child);
+            }
+            ii.child = null;
+        }
+    }
+
     ItemInfo infoForAnyChild(View child) {
         ViewParent parent;
         while ((parent=child.getParent()) != this) {
@@ -1715,12 +1949,7 @@ public class ViewPager extends ViewGroup {
             }
         }
 
-        if (mOnPageChangeListener != null) {
-            mOnPageChangeListener.onPageScrolled(position, offset, offsetPixels);
-        }
-        if (mInternalPageChangeListener != null) {
-            mInternalPageChangeListener.onPageScrolled(position, offset, offsetPixels);
-        }
+        dispatchOnPageScrolled(position, offset, offsetPixels);
 
         if (mPageTransformer != null) {
             final int scrollX = getScrollX();
@@ -2115,21 +2344,30 @@ public class ViewPager extends ViewGroup {
         final int width = getClientWidth();
         final float scrollOffset = width > 0 ? (float) getScrollX() / width : 0;
         final float marginOffset = width > 0 ? (float) mPageMargin / width : 0;
+        return infoForScrollOffset(mItems, mPageWidths, scrollOffset, marginOffset, mTempItem);
+    }
+
+    /**
+     * @return Info about the page at the given scroll offset. If that page doesn't have an
+     *         item in items, tempItem is filled in and returned.
+     */
+    static ItemInfo infoForScrollOffset(ArrayList<ItemInfo> items, PageWidths widths,
+            float scrollOffset, float marginOffset, ItemInfo tempItem) {
         int lastPos = -1;
         float lastOffset = 0.f;
         float lastWidth = 0.f;
         boolean first = true;
 
         ItemInfo lastItem = null;
-        for (int i = 0; i < mItems.size(); i++) {
-            ItemInfo ii = mItems.get(i);
+        for (int i = 0; i < items.size(); i++) {
+            ItemInfo ii = items.get(i);
             float offset;
             if (!first && ii.position != lastPos + 1) {
                 // Create a synthetic item for a missing page.
-                ii = mTempItem;
+                ii = tempItem;
                 ii.offset = lastOffset + lastWidth + marginOffset;
                 ii.position = lastPos + 1;
-                ii.widthFactor = mAdapter.getPageWidth(ii.position);
+                ii.widthFactor = widths.getPageWidth(ii.position);
                 i--;
             }
             offset = ii.offset;
@@ -2137,7 +2375,7 @@ public class ViewPager extends ViewGroup {
             final float leftBound = offset;
             final float rightBound = offset + ii.widthFactor + marginOffset;
             if (first || scrollOffset >= leftBound) {
-                if (scrollOffset < rightBound || i == mItems.size() - 1) {
+                if (scrollOffset < rightBound || i == items.size() - 1) {
                     return ii;
                 }
             } else {
@@ -2154,17 +2392,27 @@ public class ViewPager extends ViewGroup {
     }
 
     private int determineTargetPage(int currentPage, float pageOffset, int velocity, int deltaX) {
+        return determineTargetPage(mItems, mCurItem, currentPage, pageOffset, velocity, deltaX,
+                mFlingDistance, mMinimumVelocity);
+    }
+
+    /**
+     * Returns the page a drag that ends at the given page and offset settles on. The target
+     * is limited to the pages that have an item in items.
+     */
+    static int determineTargetPage(ArrayList<ItemInfo> items, int curItem, int currentPage,
+            float pageOffset, int velocity, int deltaX, int flingDistance, int minimumVelocity) {
         int targetPage;
-        if (Math.abs(deltaX) > mFlingDistance && Math.abs(velocity) > mMinimumVelocity) {
+        if (Math.abs(deltaX) > flingDistance && Math.abs(velocity) > minimumVelocity) {
             targetPage = velocity > 0 ? currentPage : currentPage + 1;
         } else {
-            final float truncator = currentPage >= mCurItem ? 0.4f : 0.6f;
+            final float truncator = currentPage >= curItem ? 0.4f : 0.6f;
             targetPage = (int) (currentPage + pageOffset + truncator);
         }
 
-        if (mItems.size() > 0) {
-            final ItemInfo firstItem = mItems.get(0);
-            final ItemInfo lastItem = mItems.get(mItems.size() - 1);
+        if (items.size() > 0) {
+            final ItemInfo firstItem = items.get(0);
+            final ItemInfo lastItem = items.get(items.size() - 1);
 
             // Only let the user target pages we have items for
             targetPage = Math.max(firstItem.position, Math.min(targetPage, lastItem.position));
@@ -2326,6 +2574,29 @@ public class ViewPager extends ViewGroup {
         mFakeDragging = false;
     }
 
+    /**
+     * End a fake drag of the pager and settle on the given page, instead of the page
+     * {@link #endFakeDrag()} would pick from the distance and the velocity of the drag.
+     * The target page is selected and scrolled to just once.
+     *
+     * @param targetPage The page to settle on.
+     */
+    void endFakeDrag(int targetPage) {
+        if (!mFakeDragging) {
+            throw new IllegalStateException("No fake drag in progress. Call beginFakeDrag first.");
+        }
+
+        final VelocityTracker velocityTracker = mVelocityTracker;
+        velocityTracker.computeCurrentVelocity(1000, mMaximumVelocity);
+        int initialVelocity = (int) VelocityTrackerCompat.getXVelocity(
+                velocityTracker, mActivePointerId);
+        mPopulatePending = true;
+        setCurrentItemInternal(targetPage, true, true, initialVelocity);
+        endDrag();
+
+        mFakeDragging = false;
+    }
+
     /**
      * Fake drag by an offset in pixels. You must have called {@link #beginFakeDrag()} first.
      *
@@ -2387,6 +2658,38 @@ public class ViewPager extends ViewGroup {
         return mFakeDragging;
     }
 
+    /**
+     * Make the next or the previous page the current item once a fake drag has reached it,
+     * so the fake drag can move further than the pages next to the one it started at.
+     * Unlike {@link #setCurrentItem(int)} this keeps the scroll position and the scroll
+     * state, so the fake drag just continues.
+     */
+    void followFakeDrag() {
+        final int width = getClientWidth();
+        if (!mFakeDragging || mAdapter == null || width <= 0) {
+            return;
+        }
+
+        final float scrollOffset = (float) getScrollX() / width;
+        // The scroll position has been truncated to whole pixels.
+        final float slop = 1f / width;
+        int position = mCurItem;
+        final ItemInfo next = infoForPosition(mCurItem + 1);
+        final ItemInfo prev = infoForPosition(mCurItem - 1);
+        if (next != null && scrollOffset + slop >= next.offset) {
+            position = next.position;
+        } else if (prev != null && scrollOffset - slop <= prev.offset) {
+            position = prev.position;
+        }
+
+        if (position != mCurItem) {
+            // The offsets of the new pages are based on the offset of the old current item,
+            // so the scroll position stays valid.
+            populate(position);
+            dispatchOnPageSelected(position);
+        }
+    }
+
     private void onSecondaryPointerUp(MotionEvent ev) {
         final int pointerIndex = MotionEventCompat.getActionIndex(ev);
         final int pointerId = MotionEventCompat.getPointerId(ev, pointerIndex);